@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("org.jetbrains.intellij") version "1.9.0"
+    id("me.champeau.jmh") version "0.6.8"
 }
 
 group = "com.friendly_machines.intellij.plugins"
@@ -26,6 +27,27 @@ dependencies {
     implementation("org.junit.jupiter:junit-jupiter:5.8.1")
 }
 
+// Benchmarks of the GDB/MI parser and command encoder (src/jmh), run with "./gradlew jmh".
+// Results (ops/s, and allocation/op from the GC profiler) are in build/results/jmh/results.txt.
+jmh {
+    jmhVersion.set("1.35")
+    benchmarkMode.set(listOf("thrpt"))
+    timeUnit.set("s")
+    profilers.set(listOf("gc"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // e.g. ./gradlew jmh -Pjmh.includes=GdbMiDecodeBenchmark
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
+
+configurations {
+    // The benchmarks only use the parser, but GdbMiFilter (for the encoder) refers to the platform.
+    named("jmhImplementation") {
+        extendsFrom(compileOnly.get())
+    }
+}
+
 tasks {
     // Set the JVM compatibility versions
     withType<JavaCompile> {
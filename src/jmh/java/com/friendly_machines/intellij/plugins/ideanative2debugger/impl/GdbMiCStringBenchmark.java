@@ -0,0 +1,45 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses the c-strings of console, target and log stream records.
+ * Those are full of escapes (newlines, quotes, terminal colors, UTF-8 as octal bytes), so this is the slow path of parseCString.
+ */
+@State(Scope.Thread)
+public class GdbMiCStringBenchmark {
+    @Param({"console-output"})
+    public String corpus;
+
+    @Param({"bytes", "text"})
+    public String input;
+
+    private CharSequence[] myLines;
+    private GdbMiLexer myLexer;
+
+    @Setup
+    public void setUp() {
+        if (input.equals("bytes")) {
+            myLines = GdbMiCorpus.load(corpus).stream().map(line -> new GdbMiByteSequence(line, 0, line.length)).toArray(CharSequence[]::new);
+        } else {
+            myLines = GdbMiCorpus.loadText(corpus).toArray(new CharSequence[0]);
+        }
+        myLexer = new GdbMiLexer("");
+    }
+
+    @Benchmark
+    public void parseCString(Blackhole blackhole) {
+        final var lexer = myLexer;
+        for (var line : myLines) {
+            lexer.reset(line, 1, line.length()); // after the stream mode ('~', '@' or '&')
+            blackhole.consume(GdbMiProducer.parseCString(lexer));
+        }
+    }
+}
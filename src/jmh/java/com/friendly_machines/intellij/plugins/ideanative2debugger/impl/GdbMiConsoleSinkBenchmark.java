@@ -0,0 +1,86 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes stream record text into GdbMiConsoleSink while it flushes in the background.
+ * Every invocation writes 1 MiB of text, so the throughput in ops/s is the throughput in MiB/s.
+ */
+@State(Scope.Thread)
+public class GdbMiConsoleSinkBenchmark {
+    private static final int ourChunkSize = 1024 * 1024;
+
+    @Param({"64", "1024"})
+    public int bufferKiB;
+
+    private String[] myTexts;
+    private char[] myModes;
+    private ScheduledExecutorService myScheduler;
+    private GdbMiConsoleSink mySink;
+    private final AtomicLong myPrintedCount = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        var lexer = new GdbMiLexer("");
+        var texts = new ArrayList<String>();
+        var modes = new StringBuilder();
+        int size = 0;
+        var lines = GdbMiCorpus.loadText("console-output");
+        while (size < ourChunkSize) {
+            for (var line : lines) {
+                lexer.reset(line);
+                var mode = lexer.next();
+                var text = GdbMiProducer.parseCString(lexer);
+                text = text.substring(0, Math.min(text.length(), ourChunkSize - size));
+                texts.add(text);
+                modes.append(mode);
+                size += text.length();
+                if (size == ourChunkSize) {
+                    break;
+                }
+            }
+        }
+        myTexts = texts.toArray(new String[0]);
+        myModes = modes.toString().toCharArray();
+        myScheduler = Executors.newSingleThreadScheduledExecutor();
+        mySink = new GdbMiConsoleSink(new GdbMiConsoleSink.Printer() {
+            @Override
+            public void print(char mode, @NotNull String text) {
+                myPrintedCount.addAndGet(text.length());
+            }
+
+            @Override
+            public void dropped(long count) {
+            }
+        }, myScheduler, bufferKiB * 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        myScheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public long write() {
+        final var sink = mySink;
+        final var texts = myTexts;
+        final var modes = myModes;
+        for (int i = 0; i < texts.length; ++i) {
+            sink.write(modes[i], texts[i]);
+        }
+        return myPrintedCount.get();
+    }
+}
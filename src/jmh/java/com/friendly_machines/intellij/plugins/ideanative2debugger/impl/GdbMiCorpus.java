@@ -0,0 +1,90 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The GDB/MI transcripts in src/jmh/resources/corpus, one record per line (as gdb writes them to its stdout).
+ * "backtrace-10k" is not checked in; it is expanded from the captured backtrace.mi.
+ */
+final class GdbMiCorpus {
+    public static final String BACKTRACE_10K = "backtrace-10k";
+    private static final Pattern LEVEL = Pattern.compile("level=\"\\d+\"");
+
+    private GdbMiCorpus() {
+    }
+
+    /// Returns the lines of the transcript NAME (without line terminators).
+    @NotNull
+    static List<byte[]> load(@NotNull String name) {
+        if (name.equals(BACKTRACE_10K)) {
+            return List.of(expandBacktrace(10000).getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream input = GdbMiCorpus.class.getResourceAsStream("/corpus/" + name + ".mi")) {
+            if (input == null) {
+                throw new IllegalArgumentException("no such corpus: " + name);
+            }
+            var lines = new ArrayList<byte[]>();
+            new GdbMiLineReader(input).run((buffer, start, end) -> {
+                if (end > start) {
+                    lines.add(Arrays.copyOfRange(buffer, start, end));
+                }
+            });
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /// Returns the lines of the transcript NAME as text (like OSProcessHandler gives them to notifyTextAvailable).
+    @NotNull
+    static List<String> loadText(@NotNull String name) {
+        var result = new ArrayList<String>();
+        for (var line : load(name)) {
+            result.add(new String(line, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a "-stack-list-frames" response with FRAMECOUNT frames: the recursive frames of the captured backtrace are repeated
+     * (and renumbered) until there are enough of them--just like in a program that overflowed its stack.
+     */
+    @NotNull
+    static String expandBacktrace(int frameCount) {
+        String capture = null;
+        for (var line : loadText("backtrace")) {
+            if (line.contains("^done,stack=[")) {
+                capture = line;
+            }
+        }
+        if (capture == null) {
+            throw new IllegalStateException("backtrace.mi does not contain a stack");
+        }
+        int listStart = capture.indexOf('[') + 1;
+        var frames = capture.substring(listStart, capture.length() - 1).split(",(?=frame=\\{)");
+        // The outermost frames (main and the Rust runtime) stay at the bottom.
+        int recursiveCount = frames.length - 4;
+        var result = new StringBuilder(capture.length() * (frameCount / frames.length + 1));
+        result.append(capture, 0, listStart);
+        for (int level = 0; level < frameCount; ++level) {
+            int index = level < frameCount - 4 ? level % recursiveCount : recursiveCount + (level - (frameCount - 4));
+            if (level > 0) {
+                result.append(',');
+            }
+            result.append(LEVEL.matcher(frames[index]).replaceFirst("level=\"" + level + "\""));
+        }
+        result.append(']');
+        return result.toString();
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Decodes a whole transcript per operation, the way GdbOsProcessHandler.processLine does it:
+ * result and async records via GdbMiStateResponse.decode, stream records via GdbMiProducer.parseCString, everything else is skipped.
+ */
+@State(Scope.Thread)
+public class GdbMiDecodeBenchmark {
+    @Param({"stop-records", "registers-200", "disassembly", GdbMiCorpus.BACKTRACE_10K, "library-loaded"})
+    public String corpus;
+
+    /// "bytes": RawOutputReader (the default); "text": OSProcessHandler's lines
+    @Param({"bytes", "text"})
+    public String input;
+
+    /// "auto": lazily if the record is long (like processLine); "eager" or "lazy": always
+    @Param({"auto", "eager", "lazy"})
+    public String decoding;
+
+    @Param({"true", "false"})
+    public boolean interned;
+
+    private CharSequence[] myLines;
+    private GdbMiLexer myLexer;
+
+    @Setup
+    public void setUp() {
+        List<? extends CharSequence> lines;
+        if (input.equals("bytes")) {
+            lines = GdbMiCorpus.load(corpus).stream().map(line -> new GdbMiByteSequence(line, 0, line.length)).toList();
+        } else {
+            lines = GdbMiCorpus.loadText(corpus);
+        }
+        myLines = lines.toArray(new CharSequence[0]);
+        // Like GdbOsProcessHandler, one pool per session--so it is warm after the first operation.
+        myLexer = new GdbMiLexer("").setInternPool(interned ? new GdbMiInternPool(4096) : null);
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        final var lexer = myLexer;
+        for (var line : myLines) {
+            lexer.reset(line);
+            var token = GdbMiProducer.parseToken(lexer);
+            switch (lexer.peek()) {
+                case '^', '*', '+', '=' -> {
+                    switch (decoding) {
+                        case "eager" -> blackhole.consume(GdbMiStateResponse.decode(token, lexer, false));
+                        case "lazy" -> blackhole.consume(GdbMiStateResponse.decode(token, lexer, true));
+                        default -> blackhole.consume(GdbMiStateResponse.decode(token, lexer));
+                    }
+                }
+                case '~', '@', '&' -> {
+                    lexer.next();
+                    blackhole.consume(GdbMiProducer.parseCString(lexer));
+                }
+                default -> {
+                }
+            }
+        }
+    }
+}
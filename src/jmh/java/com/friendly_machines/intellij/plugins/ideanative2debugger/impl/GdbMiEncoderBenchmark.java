@@ -0,0 +1,69 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Encodes MI commands like GdbMiFilter.gdbSend does, into memory instead of gdb's stdin.
+ */
+@State(Scope.Thread)
+public class GdbMiEncoderBenchmark {
+    // What a stop costs (see DebugProcess), and the commands with parameters that need escaping.
+    private static final List<GdbMiCommand> STOP = List.of(
+            new GdbMiCommand("-thread-info"),
+            new GdbMiCommand("-stack-list-frames", List.of("--thread", "1")),
+            new GdbMiCommand("-stack-list-variables", List.of("--thread", "1", "--frame", "0", "--all-values")),
+            new GdbMiCommand("-data-list-changed-registers"),
+            new GdbMiCommand("-data-list-register-values", List.of("--skip-unavailable", "x")),
+            new GdbMiCommand("-data-disassemble", List.of("-a", "$pc"), List.of("5"))
+    );
+    private static final List<GdbMiCommand> ESCAPES = List.of(
+            new GdbMiCommand("-break-insert", List.of("-f", "/home/dannym/src/My Project/src/main.rs:42")),
+            new GdbMiCommand("-dprintf-insert", List.of("-f", "/home/dannym/src/hello-rust/src/main.rs:7", "\"n = %d\\n\"", "n")),
+            new GdbMiCommand("-data-evaluate-expression", List.of("--thread", "1", "--frame", "0", "strcmp(name, \"C:\\\\Users\\\\dannym\\tGrüße\") == 0")),
+            new GdbMiCommand("-file-symbol-file", List.of("C:\\Program Files\\hello rust\\target\\debug\\hello_rust.exe"))
+    );
+
+    @Param({"stop", "escapes"})
+    public String commands;
+
+    private List<GdbMiCommand> myCommands;
+    private String[] myArguments;
+    private GdbMiCommandEncoder myEncoder;
+
+    @Setup
+    public void setUp() {
+        myCommands = commands.equals("stop") ? STOP : ESCAPES;
+        myArguments = myCommands.stream().flatMap(command -> command.options().stream()).toArray(String[]::new);
+        myEncoder = new GdbMiCommandEncoder();
+    }
+
+    /// The whole gdbSend path: token, operation, escaped options and parameters, line terminator.
+    @Benchmark
+    public void appendCommand(Blackhole blackhole) {
+        myEncoder.reset();
+        int token = 0;
+        for (var command : myCommands) {
+            myEncoder.appendCommand(++token, command);
+        }
+        blackhole.consume(myEncoder.size());
+    }
+
+    /// Just the (single-pass) escaping of the arguments.
+    @Benchmark
+    public void appendArgument(Blackhole blackhole) {
+        myEncoder.reset();
+        for (var argument : myArguments) {
+            myEncoder.appendArgument(argument);
+        }
+        blackhole.consume(myEncoder.size());
+    }
+}
@@ -3,27 +3,46 @@ package com.friendly_machines.intellij.plugins.ideanative2debugger;
 
 import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.DebugProcess;
 import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.GdbMiOperationException;
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.GdbMiPriority;
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.GdbMiResults;
 import com.intellij.openapi.util.NlsContexts;
 import com.intellij.xdebugger.frame.XExecutionStack;
 import com.intellij.xdebugger.frame.XStackFrame;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 // Per thread
 public class ExecutionStack extends XExecutionStack {
+    /// How many frames are asked for at once. Deep recursion (or an async runtime) easily makes for thousands of frames, and only the first few are usually looked at.
+    public static final int FRAME_WINDOW_SIZE = 100;
+    // Frames deeper than that are not shown at all.
+    private static final int ourMaxDepth = 10000;
+
     //private final Native2StackFrame myTopFrame;
     private final DebugProcess myDebuggerSession;
     private final StackFrame myTopFrame;
     private final String myThreadId;
+    // The frames do not change while the thread is stopped, so only ask gdb once. By the index of the first frame of the window.
+    private final Map<Integer, CompletableFuture<List<GdbMiResults>>> myFrameWindows = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile CompletableFuture<Integer> myDepth;
 
-    public ExecutionStack(@NlsContexts.ListItem String name, String threadId, @Nullable Map<String, Object> topFrame, DebugProcess debuggerSession) {
+    /// @param frames the first window of frames (see FRAME_WINDOW_SIZE) if they were already requested (by DebugProcess when the thread stopped), otherwise null
+    public ExecutionStack(@NlsContexts.ListItem String name, String threadId, @Nullable GdbMiResults topFrame, @Nullable CompletableFuture<List<GdbMiResults>> frames, DebugProcess debuggerSession) {
         super(name);
         myDebuggerSession = debuggerSession;
         myThreadId = threadId;
+        if (frames != null) {
+            myFrameWindows.put(0, frames);
+        }
 //    for (Map.Entry<String, Object> frame : frames) {
 //      if ("frame".equals(frame.getKey())) {
 //        myFrames.add(new Native2StackFrame((Map<String, Object>) frame.getValue(), myDebuggerSession));
@@ -41,32 +60,68 @@ public class ExecutionStack extends XExecutionStack {
         return myTopFrame;
     }
 
-    @Override
-    public void computeStackFrames(int firstFrameIndex, XStackFrameContainer container) {
-//    if (myDebuggerSession.getCurrentState() == Debugger.State.SUSPENDED) {
-        final var frames = new ArrayList<XStackFrame>();
+    private CompletableFuture<List<GdbMiResults>> getFrameWindow(int low, @NotNull GdbMiPriority priority) {
+        return myFrameWindows.computeIfAbsent(low, key -> myDebuggerSession.getFramesAsync(myThreadId, low, low + FRAME_WINDOW_SIZE - 1, priority));
+    }
+
+    /// The depth of the stack (at most ourMaxDepth), if it's known already.
+    private int getKnownDepth() {
+        var depth = myDepth;
+        if (depth == null) {
+            depth = myDebuggerSession.getStackDepthAsync(myThreadId, ourMaxDepth, GdbMiPriority.PREFETCH);
+            myDepth = depth;
+        }
         try {
-            var gframes = myDebuggerSession.getFrames(myThreadId);
-            for (var gframe : gframes) {
-                frames.add(new StackFrame(myThreadId, gframe, myDebuggerSession));
-            }
-        } catch (GdbMiOperationException e) {
-            frames.add(myTopFrame);
-            e.printStackTrace();
-            myDebuggerSession.reportError("Failed computing Stack Frames", e);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        } catch (InterruptedException ex) {
-            // just stop
-            return;
+            return depth.getNow(ourMaxDepth);
+        } catch (CancellationException | CompletionException e) { // not supported, or resumed in the meantime
+            return ourMaxDepth;
         }
+    }
 
-        if (firstFrameIndex <= frames.size()) {
-            container.addStackFrames(frames.subList(firstFrameIndex, frames.size()), true);
-        } else {
-            container.addStackFrames(Collections.emptyList(), true);
-        }
+    @Override
+    public void computeStackFrames(int firstFrameIndex, XStackFrameContainer container) {
+//    if (myDebuggerSession.getCurrentState() == Debugger.State.SUSPENDED) {
+        getKnownDepth(); // so that it's there by the time the second window is
+        addFrameWindow(firstFrameIndex, true, container);
 //    }
     }
+
+    /**
+     * Adds the frames from INDEX to the end of its window to CONTAINER--and then the next windows, one after the other, as long as CONTAINER is still shown.
+     * @param first whether that's the first window that the platform waits for
+     */
+    private void addFrameWindow(int index, boolean first, XStackFrameContainer container) {
+        final int low = index - index % FRAME_WINDOW_SIZE;
+        getFrameWindow(low, first ? GdbMiPriority.VISIBLE : GdbMiPriority.PREFETCH).whenCompleteAsync((gframes, throwable) -> {
+            if (container.isObsolete()) {
+                return;
+            }
+            final var frames = new ArrayList<XStackFrame>();
+            if (throwable != null) {
+                if (!(DebugProcess.unwrap(throwable) instanceof GdbMiOperationException)) {
+                    container.errorOccurred(DebugProcess.unwrap(throwable).toString());
+                    return;
+                }
+                if (first) {
+                    if (myTopFrame != null && index == 0) {
+                        frames.add(myTopFrame);
+                    }
+                    myDebuggerSession.reportError("Failed computing Stack Frames", throwable);
+                }
+                // Otherwise, the stack just ended right at the end of the previous window.
+                container.addStackFrames(frames, true);
+                return;
+            }
+            int depth = getKnownDepth();
+            for (int i = index - low; i < gframes.size() && low + i < depth; ++i) {
+                frames.add(new StackFrame(myThreadId, gframes.get(i), myDebuggerSession));
+            }
+            int end = low + gframes.size();
+            boolean last = gframes.size() < FRAME_WINDOW_SIZE || end >= depth;
+            container.addStackFrames(frames, last);
+            if (!last) {
+                addFrameWindow(end, false, container);
+            }
+        }, DebugProcess.getBackgroundExecutor());
+    }
 }
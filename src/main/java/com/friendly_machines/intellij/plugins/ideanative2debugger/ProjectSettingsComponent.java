@@ -5,6 +5,8 @@ package com.friendly_machines.intellij.plugins.ideanative2debugger;
 import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.ui.ComboBox;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.ui.components.JBCheckBox;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBTextField;
 import com.intellij.util.ui.FormBuilder;
@@ -19,6 +21,15 @@ public class ProjectSettingsComponent {
     private final JBTextField myGdbTargetArg;
     private final ComboBox<String> myGdbArch;
     private final TextFieldWithBrowseButton mySymbolFile;
+    private final JBCheckBox myGdbRawOutputReader;
+    private final JBCheckBox myGdbSeparateMiChannel;
+    private final JBCheckBox myGdbInferiorTerminal;
+    private final JBIntSpinner myFastQueryTimeout;
+    private final JBIntSpinner mySymbolLoadTimeout;
+    private final JBIntSpinner myExecTimeout;
+    private final JBIntSpinner myMemoryTimeout;
+    private final JBIntSpinner myConsoleBufferKiB;
+    private final JBIntSpinner myMaxVarObjCount;
 
     //  private final JBTextField myUserNameText = new JBTextField();
     //  private final JBCheckBox myIdeaUserStatus = new JBCheckBox("Do you use IntelliJ IDEA? ");
@@ -46,6 +57,15 @@ public class ProjectSettingsComponent {
         myGdbTargetArg = new JBTextField();
         mySymbolFile = new TextFieldWithBrowseButton();
         mySymbolFile.addBrowseFolderListener("GDB Executable", "The symbol table", null, new FileChooserDescriptor(true, false, false, false, false, false));
+        myGdbRawOutputReader = new JBCheckBox("Parse GDB/MI output from raw bytes");
+        myGdbSeparateMiChannel = new JBCheckBox("Talk GDB/MI on a separate pty (new-ui)");
+        myGdbInferiorTerminal = new JBCheckBox("Give the debuggee a terminal of its own");
+        myFastQueryTimeout = new JBIntSpinner(5000, 100, Integer.MAX_VALUE, 1000);
+        mySymbolLoadTimeout = new JBIntSpinner(300000, 100, Integer.MAX_VALUE, 1000);
+        myExecTimeout = new JBIntSpinner(30000, 100, Integer.MAX_VALUE, 1000);
+        myMemoryTimeout = new JBIntSpinner(10000, 100, Integer.MAX_VALUE, 1000);
+        myConsoleBufferKiB = new JBIntSpinner(1024, 1, 1024 * 1024, 256);
+        myMaxVarObjCount = new JBIntSpinner(10000, 100, Integer.MAX_VALUE, 1000);
         myMainPanel = FormBuilder.createFormBuilder()
                 .addLabeledComponent(new JBLabel("GDB executable: "), myGdbExecutable, 1, false)
                 .addLabeledComponent(new JBLabel("Sysroot: "), myGdbSysRoot, 1, false)
@@ -53,6 +73,15 @@ public class ProjectSettingsComponent {
                 .addLabeledComponent(new JBLabel("Target type: "), myGdbTargetType, 1, false)
                 .addLabeledComponent(new JBLabel("Target arg: "), myGdbTargetArg, 1, false)
                 .addLabeledComponent(new JBLabel("Debug symbol file: "), mySymbolFile, 1, false)
+                .addComponent(myGdbRawOutputReader, 1)
+                .addComponent(myGdbSeparateMiChannel, 1)
+                .addComponent(myGdbInferiorTerminal, 1)
+                .addLabeledComponent(new JBLabel("Timeout for queries (ms): "), myFastQueryTimeout, 1, false)
+                .addLabeledComponent(new JBLabel("Timeout for loading symbols (ms): "), mySymbolLoadTimeout, 1, false)
+                .addLabeledComponent(new JBLabel("Timeout for execution control (ms): "), myExecTimeout, 1, false)
+                .addLabeledComponent(new JBLabel("Timeout for memory access (ms): "), myMemoryTimeout, 1, false)
+                .addLabeledComponent(new JBLabel("Console buffer (KiB): "), myConsoleBufferKiB, 1, false)
+                .addLabeledComponent(new JBLabel("Maximum number of variable objects: "), myMaxVarObjCount, 1, false)
                 //.addComponent(myIdeaUserStatus, 1)
                 .addComponentFillVertically(new JPanel(), 0)
                 .getPanel();
@@ -123,4 +152,76 @@ public class ProjectSettingsComponent {
     public void setSymbolFileText(String symbolFile) {
         mySymbolFile.setText(symbolFile);
     }
+
+    public boolean getGdbRawOutputReader() {
+        return myGdbRawOutputReader.isSelected();
+    }
+
+    public void setGdbRawOutputReader(boolean value) {
+        myGdbRawOutputReader.setSelected(value);
+    }
+
+    public boolean getGdbSeparateMiChannel() {
+        return myGdbSeparateMiChannel.isSelected();
+    }
+
+    public void setGdbSeparateMiChannel(boolean value) {
+        myGdbSeparateMiChannel.setSelected(value);
+    }
+
+    public boolean getGdbInferiorTerminal() {
+        return myGdbInferiorTerminal.isSelected();
+    }
+
+    public void setGdbInferiorTerminal(boolean value) {
+        myGdbInferiorTerminal.setSelected(value);
+    }
+
+    public int getFastQueryTimeoutMillis() {
+        return myFastQueryTimeout.getNumber();
+    }
+
+    public void setFastQueryTimeoutMillis(int value) {
+        myFastQueryTimeout.setNumber(value);
+    }
+
+    public int getSymbolLoadTimeoutMillis() {
+        return mySymbolLoadTimeout.getNumber();
+    }
+
+    public void setSymbolLoadTimeoutMillis(int value) {
+        mySymbolLoadTimeout.setNumber(value);
+    }
+
+    public int getExecTimeoutMillis() {
+        return myExecTimeout.getNumber();
+    }
+
+    public void setExecTimeoutMillis(int value) {
+        myExecTimeout.setNumber(value);
+    }
+
+    public int getMemoryTimeoutMillis() {
+        return myMemoryTimeout.getNumber();
+    }
+
+    public void setMemoryTimeoutMillis(int value) {
+        myMemoryTimeout.setNumber(value);
+    }
+
+    public int getConsoleBufferKiB() {
+        return myConsoleBufferKiB.getNumber();
+    }
+
+    public void setConsoleBufferKiB(int value) {
+        myConsoleBufferKiB.setNumber(value);
+    }
+
+    public int getMaxVarObjCount() {
+        return myMaxVarObjCount.getNumber();
+    }
+
+    public void setMaxVarObjCount(int value) {
+        myMaxVarObjCount.setNumber(value);
+    }
 }
@@ -40,6 +40,15 @@ public class ProjectSettingsConfigurable implements Configurable {
         modified |= !mySettingsComponent.getGdbTargetTypeText().equals(settings.gdbTargetType);
         modified |= !mySettingsComponent.getGdbTargetArgText().equals(settings.gdbTargetArg);
         modified |= !mySettingsComponent.getSymbolFile().equals(settings.symbolFile);
+        modified |= mySettingsComponent.getGdbRawOutputReader() != settings.gdbRawOutputReader;
+        modified |= mySettingsComponent.getGdbSeparateMiChannel() != settings.gdbSeparateMiChannel;
+        modified |= mySettingsComponent.getGdbInferiorTerminal() != settings.gdbInferiorTerminal;
+        modified |= mySettingsComponent.getFastQueryTimeoutMillis() != settings.fastQueryTimeoutMillis;
+        modified |= mySettingsComponent.getSymbolLoadTimeoutMillis() != settings.symbolLoadTimeoutMillis;
+        modified |= mySettingsComponent.getExecTimeoutMillis() != settings.execTimeoutMillis;
+        modified |= mySettingsComponent.getMemoryTimeoutMillis() != settings.memoryTimeoutMillis;
+        modified |= mySettingsComponent.getConsoleBufferKiB() != settings.consoleBufferKiB;
+        modified |= mySettingsComponent.getMaxVarObjCount() != settings.maxVarObjCount;
 //        modified |= mySettingsComponent.getIdeaUserStatus() != settings.ideaStatus;
         return modified;
     }
@@ -53,6 +62,15 @@ public class ProjectSettingsConfigurable implements Configurable {
         settings.gdbTargetType = mySettingsComponent.getGdbTargetTypeText();
         settings.gdbTargetArg = mySettingsComponent.getGdbTargetArgText();
         settings.symbolFile = mySettingsComponent.getSymbolFileText();
+        settings.gdbRawOutputReader = mySettingsComponent.getGdbRawOutputReader();
+        settings.gdbSeparateMiChannel = mySettingsComponent.getGdbSeparateMiChannel();
+        settings.gdbInferiorTerminal = mySettingsComponent.getGdbInferiorTerminal();
+        settings.fastQueryTimeoutMillis = mySettingsComponent.getFastQueryTimeoutMillis();
+        settings.symbolLoadTimeoutMillis = mySettingsComponent.getSymbolLoadTimeoutMillis();
+        settings.execTimeoutMillis = mySettingsComponent.getExecTimeoutMillis();
+        settings.memoryTimeoutMillis = mySettingsComponent.getMemoryTimeoutMillis();
+        settings.consoleBufferKiB = mySettingsComponent.getConsoleBufferKiB();
+        settings.maxVarObjCount = mySettingsComponent.getMaxVarObjCount();
     }
 
     @Override
@@ -64,6 +82,15 @@ public class ProjectSettingsConfigurable implements Configurable {
         mySettingsComponent.setGdbTargetTypeText(settings.gdbTargetType);
         mySettingsComponent.setGdbTargetArgText(settings.gdbTargetArg);
         mySettingsComponent.setSymbolFileText(settings.symbolFile);
+        mySettingsComponent.setGdbRawOutputReader(settings.gdbRawOutputReader);
+        mySettingsComponent.setGdbSeparateMiChannel(settings.gdbSeparateMiChannel);
+        mySettingsComponent.setGdbInferiorTerminal(settings.gdbInferiorTerminal);
+        mySettingsComponent.setFastQueryTimeoutMillis(settings.fastQueryTimeoutMillis);
+        mySettingsComponent.setSymbolLoadTimeoutMillis(settings.symbolLoadTimeoutMillis);
+        mySettingsComponent.setExecTimeoutMillis(settings.execTimeoutMillis);
+        mySettingsComponent.setMemoryTimeoutMillis(settings.memoryTimeoutMillis);
+        mySettingsComponent.setConsoleBufferKiB(settings.consoleBufferKiB);
+        mySettingsComponent.setMaxVarObjCount(settings.maxVarObjCount);
     }
 
     @Override
@@ -21,6 +21,20 @@ public class ProjectSettingsState implements PersistentStateComponent<ProjectSet
     public String gdbTargetType = "exec";
     public String gdbTargetArg = null;
     public String symbolFile = null;
+    public boolean gdbRawOutputReader = true;
+    // Whether MI goes through a pty of its own ("new-ui mi3"), while gdb's stdin and stdout are its CLI. Not on Windows.
+    public boolean gdbSeparateMiChannel = false;
+    // Whether the debuggee gets a pty of its own ("-inferior-tty-set"), read apart from gdb's output. Not on Windows.
+    public boolean gdbInferiorTerminal = true;
+    // How long to wait for gdb's answer to a command, by GdbMiTimeoutClass. "+" progress records extend it.
+    public int fastQueryTimeoutMillis = 5000;
+    public int symbolLoadTimeoutMillis = 300000;
+    public int execTimeoutMillis = 30000;
+    public int memoryTimeoutMillis = 10000;
+    // The text of gdb's stream records is buffered up to this size (see GdbMiConsoleSink); the rest is dropped.
+    public int consoleBufferKiB = 1024;
+    // At most this many variable objects are kept in gdb (see VarObjManager); the least recently shown ones are deleted first.
+    public int maxVarObjCount = 10000;
 
     public static ProjectSettingsState getInstance() {
         return ApplicationManager.getApplication().getService(ProjectSettingsState.class);
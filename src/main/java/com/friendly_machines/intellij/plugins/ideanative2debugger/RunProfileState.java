@@ -3,6 +3,7 @@
 package com.friendly_machines.intellij.plugins.ideanative2debugger;
 
 import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.GdbOsProcessHandler;
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.GdbPty;
 import com.intellij.execution.DefaultExecutionResult;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.ExecutionResult;
@@ -23,6 +24,8 @@ import com.intellij.openapi.actionSystem.ToggleAction;
 import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+
 public class RunProfileState extends CommandLineState {
     private final Configuration myConfiguration;
     private final TextConsoleBuilder myBuilder;
@@ -36,14 +39,14 @@ public class RunProfileState extends CommandLineState {
     @NotNull
     @Override
     protected OSProcessHandler startProcess() throws ExecutionException {
-//        try {
-//            myPty = SystemInfo.isWindows ? new PtyOnlyWin() : new PtyOnlyUnix();
-//        } catch (IOException e) {
-//            e.printStackTrace();
-//            throw new ExecutionException(e);
-//        }
-//        String slaveName = myPty.getSlaveName();
-        // myPty.getMasterFD()
+        GdbPty miPty = null;
+        if (ProjectSettingsState.getInstance().gdbSeparateMiChannel) {
+            try {
+                miPty = GdbPty.open();
+            } catch (IOException e) { // for example on Windows
+                e.printStackTrace();
+            }
+        }
         String gdbExecutableName = ProjectSettingsState.getInstance().gdbExecutableName;
         if (gdbExecutableName == null || gdbExecutableName.equals("")) {
             gdbExecutableName = "gdb";
@@ -69,16 +72,28 @@ public class RunProfileState extends CommandLineState {
         // -f (stack frame special format)
         // -tty=/dev/tty0
 
-        commandLine.addParameter("--interpreter=mi3");
+        if (miPty != null) {
+            // The primary UI stays the CLI. MI gets a channel of its own, where nothing else interleaves with the records and gdb doesn't echo our commands.
+            commandLine.addParameter("--eval-command=new-ui mi3 " + miPty.getSlaveName());
+        } else {
+            commandLine.addParameter("--interpreter=mi3");
+        }
         // gdb needs either forward-slashes or doubly-escaped backslashes
         //commandLine.addParameter("--tty=" + slaveName.replace("\\", "\\\\"));
-        //commandLine.addParameter("--eval-command=new-ui mi3 " + slaveName.replace("\\", "\\\\"));
 
         //commandLine.setWorkDirectory(workingDirectory);
         //charset = EncodingManager.getInstance().getDefaultCharset();
 
         commandLine.setRedirectErrorStream(false);
-        final OSProcessHandler osProcessHandler = new GdbOsProcessHandler(commandLine);
+        final OSProcessHandler osProcessHandler;
+        try {
+            osProcessHandler = new GdbOsProcessHandler(commandLine, miPty);
+        } catch (ExecutionException | RuntimeException e) {
+            if (miPty != null) {
+                miPty.close();
+            }
+            throw e;
+        }
         // "Since we cannot guarantee that the listener is added before process handled is start notified, ..." ugh
         // This assumes that we can do that still and have it have an effect. That's why we override execute() to make sure that that's the case.
         //myBuilder.addFilter(new Native2DebuggerGdbMiFilter(osProcessHandler, getEnvironment().getProject()));
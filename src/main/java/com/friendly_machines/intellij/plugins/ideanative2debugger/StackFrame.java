@@ -3,7 +3,9 @@ package com.friendly_machines.intellij.plugins.ideanative2debugger;
 
 import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.DebugProcess;
 import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.Evaluator;
-import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.GdbMiOperationException;
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.GdbMiResults;
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.VarObj;
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.VarObjManager;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.ColoredTextContainer;
@@ -17,30 +19,31 @@ import com.intellij.xdebugger.frame.XValueChildrenList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
 import java.nio.file.Path;
-import java.util.List;
-import java.util.Map;
+import java.util.ArrayList;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class StackFrame extends XStackFrame {
-    private final Map<String, ?> myFrame;
+    private final GdbMiResults myFrame;
     private final DebugProcess myDebuggerSession;
     private final XSourcePosition myPosition;
     private final String myThreadId;
 
     @Nullable
-    public XSourcePosition createSourcePositionFromFrame(Map<String, ?> gdbFrame) {
+    public XSourcePosition createSourcePositionFromFrame(GdbMiResults gdbFrame) {
         VirtualFile p = null;
         if (gdbFrame.containsKey("fullname")) {
-            String file = (String) gdbFrame.get("fullname"); // TODO: or "file"--but that's relative
+            String file = gdbFrame.getString("fullname"); // TODO: or "file"--but that's relative
             p = VfsUtil.findFile(Path.of(file), false);
         }
         if (p == null) {
             return null;
         }
 //    if (p != null && gdbFrame.containsKey("file")) {
-//      //String file = (String) gdbFrame.get("file");
+//      //String file = gdbFrame.getString("file");
 //
 //      final Project project = myDebuggerSession.getSession().getProject();
 //      final PsiManager psiManager = PsiManager.getInstance(project);
@@ -52,14 +55,14 @@ public class StackFrame extends XStackFrame {
 //        //p = psiFile.getVirtualFile();
 //      }
 //    }
-        var line = Optional.ofNullable((String) gdbFrame.get("line")).map(Integer::parseInt);
+        var line = Optional.ofNullable(gdbFrame.getString("line")).map(Integer::parseInt);
         if (line.isEmpty()) {
             return null;
         }
         return XDebuggerUtil.getInstance().createPosition(p, line.get() - 1);
     }
 
-    public StackFrame(String threadId, Map<String, ?> gdbFrame, DebugProcess debuggerSession) {
+    public StackFrame(String threadId, GdbMiResults gdbFrame, DebugProcess debuggerSession) {
         myThreadId = threadId;
         myFrame = gdbFrame;
         myDebuggerSession = debuggerSession;
@@ -86,16 +89,16 @@ public class StackFrame extends XStackFrame {
     public void customizePresentation(@NotNull ColoredTextContainer component) {
         try {
             if (myFrame.containsKey("func")) {
-                String func = (String) myFrame.get("func");
+                String func = myFrame.getString("func");
                 component.append(func, SimpleTextAttributes.REGULAR_ATTRIBUTES);
             }
             component.append(" at ", SimpleTextAttributes.REGULAR_ATTRIBUTES);
             if (myFrame.containsKey("file")) {
-                String file = (String) myFrame.get("file");
-                String line = myFrame.containsKey("line") ? (String) myFrame.get("line") : "?";
+                String file = myFrame.getString("file");
+                String line = myFrame.getString("line", "?");
                 component.append(file + ":" + line, SimpleTextAttributes.LINK_ATTRIBUTES);
             } else if (myFrame.containsKey("addr")) {
-                component.append((String) myFrame.get("addr"), SimpleTextAttributes.GRAY_ATTRIBUTES);
+                component.append(myFrame.getString("addr"), SimpleTextAttributes.GRAY_ATTRIBUTES);
             }
             // component.setIcon ?
             // TODO
@@ -106,25 +109,42 @@ public class StackFrame extends XStackFrame {
 
     @Override
     public void computeChildren(@NotNull XCompositeNode node) {
-        try {
-            String level = (String) myFrame.get("level");
-            var variables = (List<Map<String, String>>) (List<?>) myDebuggerSession.getVariables(myThreadId, level);
-            final XValueChildrenList list = new XValueChildrenList();
-            for (var variable : variables) {
-                String name = variable.get("name");
-                String value = variable.getOrDefault("value", "?");
-                list.add(name, new Value(name, value, variable.containsKey("arg")));
+        String level = myFrame.getString("level");
+        var varObjManager = myDebuggerSession.getVarObjManager();
+        myDebuggerSession.getVariableNamesAsync(myThreadId, level).thenCompose(variables -> {
+            var names = new ArrayList<String>();
+            var args = new ArrayList<Boolean>();
+            var varObjs = new ArrayList<CompletableFuture<VarObj>>();
+            for (int i = 0; i < variables.size(); ++i) {
+                var variable = variables.getRow(i);
+                String name = variable.getString("name");
+                names.add(name);
+                args.add(variable.containsKey("arg"));
+                varObjs.add(varObjManager.getRoot(myThreadId, getFrameKey(), level, name));
+            }
+            // Wait for all of them, failed or not
+            return CompletableFuture.allOf(varObjs.stream().map(f -> f.exceptionally(throwable -> null)).toArray(CompletableFuture[]::new)).thenApply(unused -> {
+                final XValueChildrenList list = new XValueChildrenList();
+                for (int i = 0; i < names.size(); ++i) {
+                    var name = names.get(i);
+                    Value value;
+                    try {
+                        value = new Value(name, varObjs.get(i).join(), args.get(i), varObjManager);
+                    } catch (CompletionException | CancellationException e) {
+                        value = new Value(name, "<" + DebugProcess.unwrap(e) + ">", args.get(i));
+                    }
+                    list.add(name, value);
+                }
+                return list;
+            });
+        }).whenComplete((list, throwable) -> {
+            if (throwable != null) {
+                node.setErrorMessage(DebugProcess.unwrap(throwable).toString());
+                myDebuggerSession.reportError("Failed evaluating variable", throwable);
+                return;
             }
             node.addChildren(list, true);
-        } catch (GdbMiOperationException e) {
-            e.printStackTrace();
-            myDebuggerSession.reportError("Failed evaluating variable", e);
-        } catch (IOException | ClassCastException e) {
-            e.printStackTrace();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return;
-        }
+        });
     }
 
     public String getThreadId() {
@@ -132,6 +152,11 @@ public class StackFrame extends XStackFrame {
     }
 
     public String getLevel() {
-        return (String) myFrame.get("level");
+        return myFrame.getString("level");
+    }
+
+    /// See VarObjManager.frameKey
+    public String getFrameKey() {
+        return VarObjManager.frameKey(getLevel(), myFrame);
     }
 }
@@ -2,28 +2,93 @@
 
 package com.friendly_machines.intellij.plugins.ideanative2debugger;
 
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.DebugProcess;
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.VarObj;
+import com.friendly_machines.intellij.plugins.ideanative2debugger.impl.VarObjManager;
 import com.intellij.util.PlatformIcons;
+import com.intellij.xdebugger.frame.XCompositeNode;
 import com.intellij.xdebugger.frame.XValue;
+import com.intellij.xdebugger.frame.XValueChildrenList;
 import com.intellij.xdebugger.frame.XValueNode;
 import com.intellij.xdebugger.frame.XValuePlace;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 
+/**
+ * A value, backed by a gdb variable object (see VarObjManager).
+ * The children are only listed when the node is expanded, and then a page at a time--so a huge container is never formatted as a whole.
+ */
 public class Value extends XValue {
     private final String myName;
+    // Only if there's no varobj (for example because it couldn't be created)
     private final String myValue;
+    @Nullable
+    private final VarObj myVarObj;
+    @Nullable
+    private final VarObjManager myVarObjManager;
     private final boolean myArg;
+    // The index of the first child that's not shown yet. For "show more", the platform calls computeChildren again.
+    private volatile int myChildrenStart = 0;
 
     @Override
     public void computePresentation(@NotNull XValueNode node, @NotNull XValuePlace xValuePlace) {
         Icon icon = myArg ? PlatformIcons.PARAMETER_ICON : PlatformIcons.VARIABLE_ICON; // TODO: or FIELD or PROPERTY
-        node.setPresentation(icon, myName, myValue, false); // last one is HasChildren. TODO
+        if (myVarObj != null) {
+            // Note: A dynamic varobj (pretty printer) only says whether it has children at all (has_more)
+            node.setPresentation(icon, myVarObj.getType(), myVarObj.getValue(), myVarObj.getChildCount() > 0 || myVarObj.hasMore());
+        } else {
+            node.setPresentation(icon, null, myValue, false);
+        }
+    }
+
+    @Override
+    public void computeChildren(@NotNull XCompositeNode node) {
+        if (myVarObj == null || myVarObjManager == null) {
+            node.addChildren(XValueChildrenList.EMPTY, true);
+            return;
+        }
+        final int from = myChildrenStart;
+        myVarObjManager.listChildren(myVarObj, from, from + XCompositeNode.MAX_CHILDREN_TO_SHOW).whenComplete((children, throwable) -> {
+            if (node.isObsolete()) {
+                return;
+            }
+            if (throwable != null) {
+                node.setErrorMessage(DebugProcess.unwrap(throwable).toString());
+                return;
+            }
+            final XValueChildrenList list = new XValueChildrenList(children.children().size());
+            for (var child : children.children()) {
+                list.add(child.getExpression(), new Value(child.getExpression(), child, false, myVarObjManager));
+            }
+            int end = from + children.children().size();
+            myChildrenStart = end;
+            if (myVarObj.isDynamic()) {
+                myVarObjManager.setUpdateRange(myVarObj, 0, end);
+            }
+            // A pretty printer doesn't say how many there are; so that's just the next page.
+            int remaining = myVarObj.isDynamic() ? (children.hasMore() ? XCompositeNode.MAX_CHILDREN_TO_SHOW : 0) : myVarObj.getChildCount() - end;
+            node.addChildren(list, remaining <= 0);
+            if (remaining > 0) {
+                node.tooManyChildren(remaining);
+            }
+        });
     }
 
     public Value(String name, String value, boolean arg) {
         myName = name;
         myValue = value;
+        myVarObj = null;
+        myVarObjManager = null;
+        myArg = arg;
+    }
+
+    public Value(String name, @NotNull VarObj varObj, boolean arg, @NotNull VarObjManager varObjManager) {
+        myName = name;
+        myValue = varObj.getValue();
+        myVarObj = varObj;
+        myVarObjManager = varObjManager;
         myArg = arg;
     }
 }
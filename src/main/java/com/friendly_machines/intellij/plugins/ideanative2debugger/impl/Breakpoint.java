@@ -19,12 +19,11 @@ package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
 import com.intellij.xdebugger.breakpoints.XBreakpoint;
 
 import java.io.IOException;
-import java.util.Map;
 
 public class Breakpoint {
     private final DebugProcess myDebugProcess;
     private final XBreakpoint myXBreakpoint;
-    private Map<String, ?> myGdbBkpt; /* TODO: unroll.
+    private GdbMiTuple myGdbBkpt; /* TODO: unroll.
         Mandatory are:
         number
         type
@@ -66,17 +65,17 @@ public class Breakpoint {
         fullname (optional)
         line (optional)
 
-                        String times = (String) bkpt.get("times");
-                String originalLocation = (String) bkpt.get("original-location");
-                String type_ = (String) bkpt.get("breakpoint");
+                        String times = bkpt.getString("times");
+                String originalLocation = bkpt.getString("original-location");
+                String type_ = bkpt.getString("breakpoint");
                 // String addr
-                String disp = (String) bkpt.get("disp");
-                String enabled = (String) bkpt.get("enabled");
-                ArrayList<Object> locations = (ArrayList<Object>) bkpt.get("locations");
+                String disp = bkpt.getString("disp");
+                String enabled = bkpt.getString("enabled");
+                GdbMiList locations = bkpt.getList("locations");
 
     */
 
-    Breakpoint(DebugProcess debugProcess, XBreakpoint xBreakpoint, Map<String, ?> gdbResponse) {
+    Breakpoint(DebugProcess debugProcess, XBreakpoint xBreakpoint, GdbMiTuple gdbResponse) {
         myDebugProcess = debugProcess;
         myXBreakpoint = xBreakpoint;
         myGdbBkpt = gdbResponse;
@@ -90,7 +89,7 @@ public class Breakpoint {
     }
 
     public String getNumber() {
-        return (String) myGdbBkpt.get("number");
+        return myGdbBkpt.getString("number");
     }
 
     public void setEnabled(boolean b) throws IOException, InterruptedException {
@@ -98,21 +97,21 @@ public class Breakpoint {
         try {
             if (b) {
                 myDebugProcess.breakEnable(number);
-                ((Map<String, String>) myGdbBkpt).put("enabled", "y");
+                myGdbBkpt = myGdbBkpt.with("enabled", new GdbMiConst("y"));
             } else {
                 myDebugProcess.breakDisable(number);
-                ((Map<String, String>) myGdbBkpt).put("enabled", "n");
+                myGdbBkpt = myGdbBkpt.with("enabled", new GdbMiConst("n"));
             }
         } catch (GdbMiOperationException e) {
             myDebugProcess.reportError("could not enable/disable breakpoint in GDB", e);
         }
     }
 
-    public void setFromGdbBkpt(Map<String, ?> bkpt) {
+    public void setFromGdbBkpt(GdbMiTuple bkpt) {
         myGdbBkpt = bkpt;
     }
 
 //    public boolean isEnabled() {
-//        return "y".equals(((String) myGdbResponse.get("enabled")));
+//        return "y".equals(myGdbBkpt.getString("enabled"));
 //    }
 }
@@ -26,14 +26,21 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 // Note: one line can map to multiple actual addrs! (but that's GDB's business)
 public class BreakpointManager {
     private final List<Breakpoint> myBreakpoints = new ArrayList<>();
     private final DebugProcess myDebugProcess;
 
+    private record PendingInsert(XLineBreakpoint<XBreakpointProperties> key, GdbMiCommand command) {
+    }
+
+    /// Between beginBatch and endBatch, the inserts are collected here instead of being sent one by one.
+    @Nullable
+    private List<PendingInsert> myPendingInserts;
+
     public BreakpointManager(DebugProcess debugProcess) {
         myDebugProcess = debugProcess;
     }
@@ -42,6 +49,43 @@ public class BreakpointManager {
         return position.getFile().getPath() + ":" + (position.getLine() + 1);
     }
 
+    /// Collects the breakpoints that are added until endBatch, and then sends them all to gdb at once.
+    public void beginBatch() {
+        if (myPendingInserts == null) {
+            myPendingInserts = new ArrayList<>();
+        }
+    }
+
+    public void endBatch() throws InterruptedException {
+        var pendingInserts = myPendingInserts;
+        myPendingInserts = null;
+        if (pendingInserts == null || pendingInserts.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<GdbMiStateResponse>> responses;
+        try {
+            responses = myDebugProcess.gdbBatch(pendingInserts.stream().map(PendingInsert::command).toList());
+        } catch (IOException e) {
+            for (var pendingInsert : pendingInserts) {
+                myDebugProcess.getSession().setBreakpointInvalid(pendingInsert.key(), "Unsupported breakpoint position");
+            }
+            return;
+        }
+        for (int i = 0; i < pendingInserts.size(); ++i) {
+            var key = pendingInserts.get(i).key();
+            try {
+                addInsertedBreakpoint(key, myDebugProcess.awaitCall(responses.get(i)));
+            } catch (GdbMiOperationException | ClassCastException | IOException e) {
+                myDebugProcess.getSession().setBreakpointInvalid(key, "Unsupported breakpoint position");
+            }
+        }
+    }
+
+    private void addInsertedBreakpoint(@NotNull XLineBreakpoint<XBreakpointProperties> key, @NotNull GdbMiTuple gdbResponse) {
+        var bkpt = gdbResponse.getTuple("bkpt");
+        myBreakpoints.add(new Breakpoint(myDebugProcess, key, bkpt));
+    }
+
     public boolean addBreakpoint(@NotNull XLineBreakpoint<XBreakpointProperties> key) throws InterruptedException {
         // TODO: Just store our Breakpoint in the user data of KEY and then you don't need myBreakpoints in the first place.
         final XSourcePosition sourcePosition = key.getSourcePosition();
@@ -76,16 +120,23 @@ public class BreakpointManager {
             options.add(condition);
         }
         // TODO: breakpoint.isLogStack()
+        if (myPendingInserts != null) {
+            // Note: Whether it worked is only known after endBatch
+            if (key.isLogMessage()) {
+                myPendingInserts.add(new PendingInsert(key, new GdbMiCommand("-dprintf-insert", options, List.of(fileLineReference(key.getSourcePosition()), "Breakpointhit"))));
+            } else {
+                myPendingInserts.add(new PendingInsert(key, new GdbMiCommand("-break-insert", options, List.of(fileLineReference(key.getSourcePosition())))));
+            }
+            return true;
+        }
         try {
-            Map<String, ?> gdbResponse;
+            GdbMiTuple gdbResponse;
             if (key.isLogMessage()) {
                 gdbResponse = myDebugProcess.dprintfInsert(options, List.of(fileLineReference(key.getSourcePosition()), "Breakpointhit"));
             } else {
                 gdbResponse = myDebugProcess.breakInsert(options, List.of(fileLineReference(key.getSourcePosition())));
             }
-            @SuppressWarnings("unchecked")
-            var bkpt = (Map<String, Object>) gdbResponse.get("bkpt");
-            myBreakpoints.add(new Breakpoint(myDebugProcess, key, bkpt));
+            addInsertedBreakpoint(key, gdbResponse);
             return true;
         } catch (GdbMiOperationException | ClassCastException | IOException e) {
             myDebugProcess.getSession().setBreakpointInvalid(key, "Unsupported breakpoint position");
@@ -4,8 +4,7 @@ import com.intellij.util.ui.components.BorderLayoutPanel;
 import com.intellij.xdebugger.XDebugSession;
 
 import javax.swing.*;
-import java.io.IOException;
-import java.util.Map;
+import java.util.List;
 
 public class CpuRegistersView extends BorderLayoutPanel {
     private JButton btnRefresh;
@@ -16,33 +15,33 @@ public class CpuRegistersView extends BorderLayoutPanel {
         this.add(panel1);
         btnRefresh.addActionListener(e -> {
             txtRegisters.setText("");
-            try {
-                var registerNames = process.dataListRegisterNames();
-                var registerValues = process.dataListRegisterValues("x");
-                for (Map<String, ?> entry: registerValues) {
-                    String numberString = (String) entry.get("number");
-                    Object value = entry.get("value");
-                    txtRegisters.append("\n");
-                    var number = Integer.parseInt(numberString);
-                    var name = registerNames.get(number);
-                    txtRegisters.append(name);
-                    txtRegisters.append(" = ");
-                    txtRegisters.append(value.toString());
+            // Both requests are in flight at the same time, and the UI thread doesn't wait for either.
+            process.dataListRegisterNamesAsync().thenCombineAsync(process.dataListRegisterValuesAsync("x"), CpuRegistersView::formatRegisters, DebugProcess.getBackgroundExecutor()).whenCompleteAsync((text, throwable) -> {
+                if (throwable != null) {
+                    process.reportError("Failed getting registers", throwable);
+                    return;
                 }
-            } catch (GdbMiOperationException e2) {
-                e2.printStackTrace();
-                process.reportError("Failed getting registers", e2);
-            } catch (RuntimeException | IOException e3) {
-                e3.printStackTrace();
-                process.reportError(e3.toString());
-            } catch (InterruptedException e4) {
-                // just stop
-                return;
-            }
-            txtRegisters.revalidate();
-
+                txtRegisters.append(text);
+                txtRegisters.revalidate();
+            }, DebugProcess.getUiExecutor());
         });
     }
+
+    static String formatRegisters(List<String> registerNames, GdbMiList registerValues) {
+        var result = new StringBuilder();
+        for (int i = 0; i < registerValues.size(); ++i) {
+            var entry = registerValues.getRow(i);
+            String numberString = entry.getString("number");
+            String value = entry.getString("value");
+            result.append("\n");
+            var number = Integer.parseInt(numberString);
+            var name = registerNames.get(number);
+            result.append(name);
+            result.append(" = ");
+            result.append(value);
+        }
+        return result.toString();
+    }
     public JComponent getDefaultFocusedComponent() {
         return btnRefresh;
     }
@@ -6,10 +6,13 @@ import com.intellij.execution.ExecutionException;
 import com.intellij.execution.ExecutionResult;
 import com.intellij.execution.process.ProcessHandler;
 import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.execution.ui.ExecutionConsole;
 import com.intellij.execution.ui.RunnerLayoutUi;
 import com.intellij.execution.ui.layout.PlaceInGrid;
 import com.intellij.notification.Notification;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
 import com.intellij.openapi.fileChooser.FileChooserDescriptor;
@@ -26,6 +29,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentManagerEvent;
 import com.intellij.ui.content.ContentManagerListener;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.xdebugger.XDebugProcess;
 import com.intellij.xdebugger.XDebugSession;
 import com.intellij.xdebugger.XSourcePosition;
@@ -43,12 +47,16 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 // TODO:  -break-condition, -break-list, -break-delete, -break-disable, -break-enable, -break-passcount, -break-watch, -catch-load
 // TODO: -environment-cd, -environment-directory, -environment-pwd
 // TODO: -thread-info, -thread-list-ids, -thread-select
 // TODO: -stack-info-frame
-// TODO: fixed variable object, floating variable object, -var-create, -var-delete, -var-info-type, -var-info-expression, -var-info-path-expression, -var-show-attributes, -var-evaluate-expression, -var-assign, -var-update, -var-set-frozen, -var-set-update-range
+// TODO: floating variable object, -var-info-type, -var-info-expression, -var-info-path-expression, -var-show-attributes, -var-evaluate-expression, -var-assign
 // TODO: tracepoints, -trace-find, -trace-define-variable, -trace-frame-collected, -trace-list-variables, -trace-start, -trace-save
 // TODO: public XValueMarkerProvider<?,?> createValueMarkerProvider(); If debugger values have unique ids just return these ids from getMarker(XValue) method. Alternatively implement markValue(XValue) to store a value in some registry and implement unmarkValue(XValue, Object) to remote it from the registry. In such a case the getMarker(XValue) method can return null if the value isn't marked.
 // TODO: -info-os [processes]
@@ -63,7 +71,12 @@ public class DebugProcess extends XDebugProcess implements Disposable {
     private final ProcessHandler myProcessHandler;
     private final ExecutionConsole myExecutionConsole;
     private final GdbMiFilter myMiFilter;
+    private final GdbMiScheduler myScheduler;
+    private final VarObjManager myVarObjManager;
     private final ExecutionEnvironment myEnvironment;
+    // The terminal of the debuggee, if it has one of its own (see setUpGdb)
+    @Nullable
+    private volatile GdbInferiorTerminal myInferiorTerminal;
     //private final OutputStream myChildIn;
 
     protected volatile boolean isGDBconnected = false;
@@ -78,25 +91,61 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         return myMiFilter.gdbSend(operation, Collections.emptyList(), Collections.emptyList());
     }
 
-    private Map<String, ?> gdbCall(String operation, Iterable<String> options, Iterable<String> parameters) throws GdbMiOperationException, IOException, InterruptedException {
-        return myMiFilter.gdbCall(operation, options, parameters);
+    private GdbMiTuple gdbCall(String operation, Iterable<String> options, Iterable<String> parameters) throws GdbMiOperationException, IOException, InterruptedException {
+        return myMiFilter.awaitCall(myScheduler.submit(GdbMiPriority.of(operation), operation, options, parameters));
     }
 
-    private Map<String, ?> gdbCall(String operation, Iterable<String> options) throws GdbMiOperationException, IOException, InterruptedException {
+    private GdbMiTuple gdbCall(String operation, Iterable<String> options) throws GdbMiOperationException, IOException, InterruptedException {
         return gdbCall(operation, options, Collections.emptyList());
     }
 
-    private Map<String, ?> gdbCall(String operation, String singleOption) throws GdbMiOperationException, IOException, InterruptedException {
+    private GdbMiTuple gdbCall(String operation, String singleOption) throws GdbMiOperationException, IOException, InterruptedException {
         return gdbCall(operation, List.of(singleOption));
     }
 
-    private void handleGdbMiNotifyAsyncOutput(String klass, Map<String, ?> attributes) {
+    private CompletableFuture<GdbMiTuple> gdbCallAsync(GdbMiPriority priority, String operation, Iterable<String> options, Iterable<String> parameters) {
+        return GdbMiFilter.checkResponseAsync(myScheduler.submit(priority, operation, options, parameters));
+    }
+
+    private CompletableFuture<GdbMiTuple> gdbCallAsync(String operation, Iterable<String> options, Iterable<String> parameters) {
+        return gdbCallAsync(GdbMiPriority.of(operation), operation, options, parameters);
+    }
+
+    private CompletableFuture<GdbMiTuple> gdbCallAsync(String operation, Iterable<String> options) {
+        return gdbCallAsync(operation, options, Collections.emptyList());
+    }
+
+    /// Like gdbCallAsync, but answered from the cache if the same query was answered (or asked) in this stop already (see GdbMiResponseCache).
+    private CompletableFuture<GdbMiTuple> gdbQueryAsync(GdbMiPriority priority, String operation, List<String> options) {
+        return myMiFilter.getResponseCache().computeIfAbsent(myMiFilter.getStopEpoch(), operation, options, () -> gdbCallAsync(priority, operation, options, Collections.emptyList()));
+    }
+
+    private static final Executor ourUiExecutor = runnable -> ApplicationManager.getApplication().invokeLater(runnable);
+
+    /// Runs the dependent stages of the async API that touch Swing.
+    public static Executor getUiExecutor() {
+        return ourUiExecutor;
+    }
+
+    /// Runs the dependent stages of the async API that do more than handing over a result--never in the thread that reads gdb's output (it would block all responses).
+    public static Executor getBackgroundExecutor() {
+        return AppExecutorUtil.getAppExecutorService();
+    }
+
+    /// Returns the actual reason an async API call failed.
+    public static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private void handleGdbMiNotifyAsyncOutput(String klass, GdbMiTuple attributes) {
         if ((klass.equals("breakpoint-modified") || klass.equals("breakpoint-created") || klass.equals("breakpoint-deleted")) && attributes.containsKey("bkpt")) {
             // Note: if a breakpoint is emitted in the result record of a command, then it will not also be emitted in an async record.
             try {
-                @SuppressWarnings("unchecked")
-                var bkpt = (Map<String, ?>) attributes.get("bkpt");
-                String number = (String) bkpt.get("number");
+                var bkpt = attributes.getTuple("bkpt");
+                String number = bkpt.getString("number");
                 if (klass.equals("breakpoint-deleted")) {
                     myBreakpointManager.deleteBreakpointByGdbNumber(number);
                 } else {
@@ -111,23 +160,45 @@ public class DebugProcess extends XDebugProcess implements Disposable {
                 e.printStackTrace();
             }
         } else {
-            // TODO: thread-group-added (id), thread-group-removed (id), thread-group-started (id, pid), thread-group-exited (id, exit-code), thread-created (id, group-id), thread-exited (id, group-id), thread-selected (id, frame), "library-loaded"
+            // Note: thread-created, thread-exited and thread-group-exited are tracked by ThreadRegistry already.
+            // TODO: thread-group-added (id), thread-group-started (id, pid), thread-selected (id, frame), "library-loaded"
             getSession().reportMessage(klass + " " + attributes.toString(), MessageType.INFO);
         }
     }
 
-    private void handleGdbMiExecAsyncOutput(String klass, Map<String, ?> attributes) throws IOException, InterruptedException {
+    /// Handles a batch of async records; see GdbMiAsyncDispatcher.
+    public void handleAsyncRecords(@NotNull List<GdbMiStateResponse> records, @NotNull List<GdbMiAsyncDispatcher.Aggregate> aggregates) {
+        for (var record : records) {
+            try {
+                handleGdbMiStateOutput(record);
+            } catch (IOException e) {
+                e.printStackTrace();
+                reportError(e.toString());
+            } catch (InterruptedException e) {
+                // just stop
+                return;
+            }
+        }
+        for (var aggregate : aggregates) {
+            if (aggregate.count() == 1) {
+                getSession().reportMessage(aggregate.klass() + " " + aggregate.attributes().get(0).toString(), MessageType.INFO);
+            } else {
+                getSession().reportMessage(aggregate.klass() + " (" + aggregate.count() + " times), for example: " + aggregate.attributes().get(0).toString(), MessageType.INFO);
+            }
+        }
+    }
+
+    private void handleGdbMiExecAsyncOutput(String klass, GdbMiTuple attributes) throws IOException, InterruptedException {
         if (klass.equals("stopped")) {
             // TODO: running with thread-id (or "all"), stopped with thread-id or stopped (a list of ids or "all")
             // *stopped,reason="breakpoint-hit",disp="keep",bkptno="1",frame={addr="0x00007ffff7b53857",func="amd_host_image_builder::main",args=[],file="src/main.rs",fullname="/home/dannym/src/Oxide/crates/main/amd-host-image-builder/src/main.rs",line="2469",arch="i386:x86-64"},thread-id="1",stopped-threads="all",core="4"
             // Note: The point here is to change the IDEA debugger state to paused
             try {
-                var reason = (String) attributes.get("reason");
-//        String disp = (String) attributes.get("disp");
-//        String bkptno = (String) attributes.get("bkptno");
-//        String threadId = (String) attributes.get("thread-id");
-//        String stoppedThreads = (String) attributes.get("stopped-threads");
-//        String core = (String) attributes.get("core");
+                var reason = attributes.getString("reason");
+//        String disp = attributes.getString("disp");
+//        String bkptno = attributes.getString("bkptno");
+//        String stoppedThreads = attributes.getString("stopped-threads");
+//        String core = attributes.getString("core");
                 if (reason != null && reason.startsWith("exited")) {
                     // TODO: reason=("exited-normally"|"exited"|"exited-signalled")
                     getSession().reportMessage("Debugged program exited with " + attributes, MessageType.INFO);
@@ -136,38 +207,56 @@ public class DebugProcess extends XDebugProcess implements Disposable {
                     return;
                 }
 
-                var tresponse = getThreadInfo();
-                if (tresponse.containsKey("threads")) {
-                    @SuppressWarnings("unchecked")
-                    List<Object> threads = (List<Object>) tresponse.get("threads");
-                    String currentThreadId = (String) tresponse.get("current-thread-id");
-
-                    SuspendContext context = generateSuspendContext(threads, currentThreadId);
-                    if ("breakpoint-hit".equals(reason)) {
-                        if (attributes.containsKey("bkptno")) {
-                            String bkptno = (String) attributes.get("bkptno");
-                            Optional<Breakpoint> breakpointo = myBreakpointManager.getBreakpointByGdbNumber(bkptno);
-                            if (breakpointo.isPresent()) {
-                                Breakpoint breakpoint = breakpointo.get();
-                                getSession().breakpointReached(breakpoint.getXBreakpoint(), "fancy message", context); // FIXME
-                            }
-                        } else {
-                            reportError("Unknown GDB breakpoint was hit");
-                        }
-                    }
-                    getSession().positionReached(context); // TODO: Only for "Run to Cursor" ?
-                } else {
-                    reportError("handleGdbMiExecAsyncOutput failed with: no threads response in " + attributes);
-                }
+                // Ask for everything the UI needs right away, all at once--instead of one after another, each blocking the UI.
+                // The other threads are known from the notifications already (see ThreadRegistry); only the thread that stopped is looked at eagerly.
+                // Their stacks (and top frames) are loaded once the user expands them.
+                var threadId = attributes.getString("thread-id");
+                var threadRegistry = myMiFilter.getThreadRegistry();
+                var threadInfo = threadId != null && threadRegistry.get(threadId) != null ? getThreadInfoAsync(threadId) : getThreadInfoAsync();
+                var frames = threadId != null ? getFramesAsync(threadId, 0, ExecutionStack.FRAME_WINDOW_SIZE - 1, GdbMiPriority.PREFETCH) : null;
+                threadInfo.thenAcceptAsync(tresponse -> handleStop(reason, attributes, tresponse, threadId, frames), ourUiExecutor).exceptionally(throwable -> {
+                    reportError("handleGdbMiExecAsyncOutput failed", throwable);
+                    return null;
+                });
             } catch (ClassCastException e) {
                 e.printStackTrace();
                 reportError("handleGdbMiExecAsyncOutput failed with: " + attributes);
-            } catch (GdbMiOperationException e) {
-                reportError("handleGdbMiExecAsyncOutput failed", e);
             }
         }
     }
 
+    private void handleStop(String reason, GdbMiTuple attributes, GdbMiTuple tresponse, @Nullable String stoppedThreadId, @Nullable CompletableFuture<List<GdbMiResults>> stoppedThreadFrames) {
+        try {
+            if (tresponse.containsKey("threads")) {
+                GdbMiList threads = tresponse.getList("threads");
+                // Only there if all threads were asked for
+                String currentThreadId = tresponse.getString("current-thread-id", stoppedThreadId != null ? stoppedThreadId : "");
+                myMiFilter.getThreadRegistry().updateFromThreadInfo(threads);
+                fetchThreadNames();
+
+                SuspendContext context = generateSuspendContext(threads, currentThreadId, stoppedThreadId, stoppedThreadFrames);
+                if ("breakpoint-hit".equals(reason)) {
+                    if (attributes.containsKey("bkptno")) {
+                        String bkptno = attributes.getString("bkptno");
+                        Optional<Breakpoint> breakpointo = myBreakpointManager.getBreakpointByGdbNumber(bkptno);
+                        if (breakpointo.isPresent()) {
+                            Breakpoint breakpoint = breakpointo.get();
+                            getSession().breakpointReached(breakpoint.getXBreakpoint(), "fancy message", context); // FIXME
+                        }
+                    } else {
+                        reportError("Unknown GDB breakpoint was hit");
+                    }
+                }
+                getSession().positionReached(context); // TODO: Only for "Run to Cursor" ?
+            } else {
+                reportError("handleGdbMiExecAsyncOutput failed with: no threads response in " + attributes);
+            }
+        } catch (ClassCastException e) {
+            e.printStackTrace();
+            reportError("handleGdbMiExecAsyncOutput failed with: " + attributes);
+        }
+    }
+
     public void handleGdbMiStateOutput(GdbMiStateResponse response) throws IOException, InterruptedException {
         // =breakpoint-modified{bkpt={number=1, times=0, original-location=/home/dannym/src/Oxide/main/amd-host-image-builder/src/main.rs:2472, locations=[{number=1.1, thread-groups=[i1], file=src/main.rs, func=amd_host_image_builder::main, line=2472, fullname=/home/dannym/src/Oxide/crates/main/amd-host-image-builder/src/main.rs, addr=0x00007ffff7b538d4, enabled=y}, {number=1.2, thread-groups=[i1], file=src/main.rs, func=amd_host_image_builder::main, line=2472, fullname=/home/dannym/src/Oxide/crates/main/amd-host-image-builder/src/main.rs, addr=0x00007ffff7b53a70, enabled=y}], type=breakpoint, addr=<MULTIPLE>, disp=keep, enabled=y}}
         char mode = response.getMode();
@@ -180,33 +269,59 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         }
     }
 
+    /// Prints the text of stream records (batched; see GdbMiConsoleSink). Note: Not called in the UI thread--ConsoleView.print doesn't need it.
     public void handleGdbTextOutput(char mode, @NotNull String text) {
+        if (!(myExecutionConsole instanceof ConsoleView view)) {
+            return;
+        }
         switch (mode) {
             case '&': // log
-                if (!text.isEmpty())
-                    reportMessage(text, MessageType.INFO);
+                view.print(text, ConsoleViewContentType.LOG_INFO_OUTPUT);
                 break;
             case '@': // target
-            {
-//                var view = (ConsoleView) myExecutionConsole.getComponent();
-//                if (!text.isEmpty())
-//                    view.print(text, ConsoleViewContentType.SYSTEM_OUTPUT);
-                if (!text.isEmpty()) {
-                    reportMessage(text, MessageType.INFO);
-                }
+                view.print(text, ConsoleViewContentType.NORMAL_OUTPUT);
                 break;
-            }
             case '~': // console
-            {
-                if (!text.isEmpty())
-                    reportMessage(text, MessageType.INFO);
+                view.print(text, ConsoleViewContentType.SYSTEM_OUTPUT);
                 break;
-            }
             default:
                 break;
         }
     }
 
+    public void handleGdbTextDropped(long count) {
+        if (myExecutionConsole instanceof ConsoleView view) {
+            view.print("[" + count + " characters of gdb output dropped]\n", ConsoleViewContentType.LOG_WARNING_OUTPUT);
+        }
+    }
+
+    /// Gives the debuggee a terminal of its own, whose output goes to the console (batched, like gdb's; see GdbMiConsoleSink).
+    @NotNull
+    private GdbInferiorTerminal openInferiorTerminal() throws IOException {
+        var sink = new GdbMiConsoleSink(new GdbMiConsoleSink.Printer() {
+            @Override
+            public void print(char mode, @NotNull String text) {
+                handleGdbTextOutput(mode, text);
+            }
+
+            @Override
+            public void dropped(long count) {
+                if (myExecutionConsole instanceof ConsoleView view) {
+                    view.print("[" + count + " characters of debuggee output dropped]\n", ConsoleViewContentType.LOG_WARNING_OUTPUT);
+                }
+            }
+        }, AppExecutorUtil.getAppScheduledExecutorService(), ProjectSettingsState.getInstance().consoleBufferKiB * 1024);
+        return GdbInferiorTerminal.open(sink);
+    }
+
+    private void closeInferiorTerminal() {
+        var inferiorTerminal = myInferiorTerminal;
+        if (inferiorTerminal != null) {
+            myInferiorTerminal = null;
+            inferiorTerminal.close();
+        }
+    }
+
 
     public void reportError(String s) {
         getSession().reportError(s);
@@ -218,12 +333,23 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         }
     }
 
+    /// Reports the failure of an async API call (a GdbMiOperationException or some other exception).
+    public void reportError(String s, Throwable throwable) {
+        var cause = unwrap(throwable);
+        if (cause instanceof GdbMiOperationException e) {
+            reportError(s, e);
+        } else if (!(cause instanceof CancellationException)) {
+            cause.printStackTrace();
+            reportError(s + ": " + cause);
+        }
+    }
+
     public void reportError(String s, GdbMiOperationException e) {
         GdbMiStateResponse details = e.getDetails();
         if (details != null) {
             var attributes = details.getAttributes();
             if (attributes != null) {
-                Object msg = attributes.get("msg");
+                var msg = attributes.get("msg");
                 if (msg != null) {
                     reportError(s + ": " + msg);
                     return;
@@ -233,30 +359,42 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         reportError(s + ":" + e);
     }
 
-    private static String getThreadName(Map<String, Object> thread, String id) {
-        String name = thread.containsKey("target-id") ? (String) thread.get("target-id") : id;
-        String state = thread.containsKey("state") ? (String) thread.get("state") : "";
-        if (state.length() > 0) {
-            name = name + ": " + state;
-        }
-        if (thread.containsKey("details")) {
-            name = name + "; " + thread.get("details");
+    /// Asks for the names of the threads that are only known from the notifications (see ThreadRegistry.claimUnnamed), one -thread-info each, at the lowest priority. They're shown from the next stop on.
+    private void fetchThreadNames() {
+        var threadRegistry = myMiFilter.getThreadRegistry();
+        for (var id : threadRegistry.claimUnnamed()) {
+            gdbQueryAsync(GdbMiPriority.PREFETCH, "-thread-info", List.of(id)).thenAcceptAsync(response -> {
+                if (response.containsKey("threads")) {
+                    threadRegistry.updateFromThreadInfo(response.getList("threads"));
+                }
+            }, getBackgroundExecutor()).exceptionally(throwable -> {
+                var cause = unwrap(throwable);
+                if (cause instanceof CancellationException) { // dropped because the debuggee was resumed: ask again in the next stop
+                    threadRegistry.unclaim(id);
+                } else if (!(cause instanceof GdbMiOperationException)) { // otherwise, the thread exited in the meantime
+                    reportError("Could not get the name of thread " + id, throwable);
+                }
+                return null;
+            });
         }
-        return name;
     }
 
-    private SuspendContext generateSuspendContext(List<Object> threads, String currentThreadId) throws ClassCastException {
+    /// @param threads the threads that -thread-info was asked about (with their top frames)--the others are taken from the ThreadRegistry, without top frame.
+    private SuspendContext generateSuspendContext(GdbMiList threads, String currentThreadId, @Nullable String stoppedThreadId, @Nullable CompletableFuture<List<GdbMiResults>> stoppedThreadFrames) throws ClassCastException {
+        final var topFrames = new HashMap<String, GdbMiTuple>();
+        for (GdbMiValue thread1 : threads) {
+            var thread = (GdbMiTuple) thread1;
+            var topFrame = thread.getTuple("frame"); // can be null
+            if (topFrame != null) {
+                topFrames.put(thread.getString("id"), topFrame);
+            }
+        }
+
         final var stacks = new ArrayList<ExecutionStack>();
         int activeStackId = -1;
-
-        for (Object thread1 : threads) {
-            @SuppressWarnings("unchecked")
-            var thread = (Map<String, Object>) thread1;
-            String id = (String) thread.get("id");
-            String name = getThreadName(thread, id);
-            @SuppressWarnings("unchecked")
-            var topFrame = (Map<String, Object>) thread.get("frame"); // can be null
-            var stack = new ExecutionStack(name, id, topFrame, this); // one per thread
+        for (var thread : myMiFilter.getThreadRegistry().getThreads()) {
+            String id = thread.id();
+            var stack = new ExecutionStack(thread.getDisplayName(), id, topFrames.get(id), id.equals(stoppedThreadId) ? stoppedThreadFrames : null, this); // one per thread
             stacks.add(stack);
             if (currentThreadId.equals(id)) {
                 activeStackId = stacks.size() - 1;
@@ -265,65 +403,93 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         return new SuspendContext(this, stacks.toArray(new ExecutionStack[0]), activeStackId);
     }
 
-    public List<Map<String, ?>> getVariables(String threadId, String frameId) throws GdbMiOperationException, IOException, InterruptedException {
+    /// Returns a list of tuples
+    public GdbMiList getVariables(String threadId, String frameId) throws GdbMiOperationException, IOException, InterruptedException {
+        return variablesOf(gdbCall("-stack-list-variables", List.of("--thread", threadId, "--frame", frameId, "--all-values")));
+    }
+
+    /// Returns a list of tuples
+    public CompletableFuture<GdbMiList> getVariablesAsync(String threadId, String frameId) {
+        return gdbQueryAsync(GdbMiPriority.VISIBLE, "-stack-list-variables", List.of("--thread", threadId, "--frame", frameId, "--all-values")).thenApply(DebugProcess::variablesOf);
+    }
+
+    /// Returns a list of tuples with just the names (and "arg"); the values come from variable objects (see VarObjManager).
+    public CompletableFuture<GdbMiList> getVariableNamesAsync(String threadId, String frameId) {
+        return gdbQueryAsync(GdbMiPriority.VISIBLE, "-stack-list-variables", List.of("--thread", threadId, "--frame", frameId, "--no-values")).thenApply(DebugProcess::variablesOf);
+    }
+
+    private static GdbMiList variablesOf(GdbMiTuple q) {
         // TODO: --simple-values and find stuff yourself.
-        var q = gdbCall("-stack-list-variables", List.of("--thread", threadId, "--frame", frameId, "--all-values"));
-        var variables = (List<Map<String, ?>>) q.get("variables");
+        var variables = q.getList("variables");
         if (variables == null) {
-            return Collections.emptyList();
+            return GdbMiList.EMPTY;
         }
         return variables;
     }
 
-    public List<Map<String, ?>> getFrames(String threadId) throws GdbMiOperationException, ClassCastException, IOException, InterruptedException {
-        var q = gdbCall("-stack-list-frames", List.of("--thread", threadId));
-        final var result = new ArrayList<Map<String, ?>>();
+    public List<GdbMiResults> getFrames(String threadId) throws GdbMiOperationException, ClassCastException, IOException, InterruptedException {
+        return framesOf(gdbCall("-stack-list-frames", List.of("--thread", threadId)));
+    }
 
-        var stack = (Collection<Map.Entry<String, Map<String, ?>>>) q.get("stack");
+    /// The frames LOW to HIGH (inclusive) of the thread THREAD_ID--fewer if the stack isn't that deep. Fails (with a GdbMiOperationException) if it's not even LOW + 1 deep.
+    public CompletableFuture<List<GdbMiResults>> getFramesAsync(String threadId, int low, int high, GdbMiPriority priority) {
+        return gdbQueryAsync(priority, "-stack-list-frames", List.of("--thread", threadId, Integer.toString(low), Integer.toString(high))).thenApply(this::framesOf);
+    }
+
+    /// The number of frames of the thread THREAD_ID, but at most MAX_DEPTH (gdb doesn't unwind further than that).
+    public CompletableFuture<Integer> getStackDepthAsync(String threadId, int maxDepth, GdbMiPriority priority) {
+        return gdbQueryAsync(priority, "-stack-info-depth", List.of("--thread", threadId, Integer.toString(maxDepth))).thenApply(q -> Integer.parseInt(q.getString("depth", "0")));
+    }
+
+    private List<GdbMiResults> framesOf(GdbMiTuple q) throws ClassCastException {
+        final var result = new ArrayList<GdbMiResults>();
+
+        var stack = q.getResultList("stack");
         if (stack == null) {
             reportError("could not get stack frames of thread");
             return Collections.emptyList();
         }
-        for (var frame : stack) {
-            if ("frame".equals(frame.getKey())) {
-                result.add(frame.getValue());
+        for (int i = 0; i < stack.size(); ++i) {
+            if ("frame".equals(stack.getName(i))) {
+                result.add(stack.getRow(i));
             }
         }
         return result;
     }
 
-    private Map<String, ?> getThreadInfo() throws GdbMiOperationException, IOException, InterruptedException { // TODO return type ?
+    private GdbMiTuple getThreadInfo() throws GdbMiOperationException, IOException, InterruptedException { // TODO return type ?
         return gdbCall("-thread-info", Collections.emptyList());
     }
 
-    private void loadSymbols(String filename) throws GdbMiOperationException, IOException, InterruptedException {
-        gdbCall("-file-symbol-file", filename);
-    }
-
-    private void gdbTarget(String gdbTargetType, String gdbTargetArg) throws GdbMiOperationException, IOException, InterruptedException {
-        gdbCall("-target-select", List.of(gdbTargetType, gdbTargetArg));
+    public CompletableFuture<GdbMiTuple> getThreadInfoAsync() {
+        return gdbQueryAsync(GdbMiPriority.VISIBLE, "-thread-info", Collections.emptyList());
     }
 
-    private void gdbTarget(String gdbTargetType) throws GdbMiOperationException, IOException, InterruptedException {
-        gdbCall("-target-select", gdbTargetType);
+    /// Like getThreadInfoAsync, but only for the thread THREAD_ID.
+    public CompletableFuture<GdbMiTuple> getThreadInfoAsync(String threadId) {
+        return gdbQueryAsync(GdbMiPriority.VISIBLE, "-thread-info", List.of(threadId));
     }
 
     private void gdbSet(String key, String value) throws GdbMiOperationException, IOException, InterruptedException {
         gdbCall("-gdb-set", List.of(key, value));
     }
-    private Object gdbShow(String key) throws GdbMiOperationException, IOException, InterruptedException {
+    private String gdbShow(String key) throws GdbMiOperationException, IOException, InterruptedException {
         var result = gdbCall("-gdb-show", key);
-        return result.get("value");
+        return result.getString("value");
     }
 
-    public Map<String, ?> dprintfInsert(Iterable<String> options, Iterable<String> parameters) throws GdbMiOperationException, IOException, InterruptedException {
+    public GdbMiTuple dprintfInsert(Iterable<String> options, Iterable<String> parameters) throws GdbMiOperationException, IOException, InterruptedException {
         return gdbCall("-dprintf-insert", options, parameters);
     }
 
-    public Map<String, ?> breakInsert(Iterable<String> options, Iterable<String> parameters) throws GdbMiOperationException, IOException, InterruptedException {
+    public GdbMiTuple breakInsert(Iterable<String> options, Iterable<String> parameters) throws GdbMiOperationException, IOException, InterruptedException {
         return gdbCall("-break-insert", options, parameters);
     }
 
+    public CompletableFuture<GdbMiTuple> breakInsertAsync(Iterable<String> options, Iterable<String> parameters) {
+        return gdbCallAsync("-break-insert", options, parameters);
+    }
+
     public void breakDelete(String number) throws GdbMiOperationException, IOException, InterruptedException {
         gdbCall("-break-delete", number);
     }
@@ -336,14 +502,18 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         gdbCall("-break-disable", number);
     }
 
-    public Map<String, ?> evaluate(String expr, String threadId, String frameId) throws GdbMiOperationException, IOException, InterruptedException {
+    public GdbMiTuple evaluate(String expr, String threadId, String frameId) throws GdbMiOperationException, IOException, InterruptedException {
         return gdbCall("-data-evaluate-expression", List.of("--thread", threadId, "--frame", frameId, expr));
     }
 
+    public CompletableFuture<GdbMiTuple> evaluateAsync(String expr, String threadId, String frameId) {
+        return gdbCallAsync("-data-evaluate-expression", List.of("--thread", threadId, "--frame", frameId, expr));
+    }
+
     private void execRun() throws GdbMiOperationException, IOException, InterruptedException {
         //System.err.println("EXEC RUN"); // timing problems? enable debug messages.
-        Map<String, ?> stringMap = gdbCall("-exec-run", List.of("--start"));// FIXME optional "--start"
-        if (!stringMap.isEmpty()) {
+        GdbMiTuple result = gdbCall("-exec-run", List.of("--start"));// FIXME optional "--start"
+        if (!result.isEmpty()) {
             reportMessage("GDB protocol changed, please update plugin", MessageType.INFO);
         }
     }
@@ -436,65 +606,118 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         return configuredExecutableName;
     }
 
-    private void loadExecutable(ExecutionEnvironment environment, String configuredExecutableName) throws IOException, InterruptedException {
-        configuredExecutableName = completeConfiguredExecutableName(environment, configuredExecutableName);
-        try {
-            if (configuredExecutableName != null && !configuredExecutableName.isEmpty()) {
-                gdbTarget("exec", configuredExecutableName);
-
-                try {
-                    loadSymbols(configuredExecutableName);
-                } catch (GdbMiOperationException e) {
-                    reportError("Loading symbols failed", e);
-                }
-            } else {
-                gdbTarget("exec"); // not that useful, but ehh.
+    private void setUpGdb(ExecutionEnvironment environment) throws IOException, InterruptedException {
+        ProjectSettingsState projectSettings = ProjectSettingsState.getInstance();
+        // Ask the user (if necessary) first, so that the whole setup can be sent at once. gdb executes the commands in order anyway.
+        boolean loadExecutable = "exec".equals(projectSettings.gdbTargetType);
+        String executableName = loadExecutable ? completeConfiguredExecutableName(environment, projectSettings.gdbTargetArg) : null;
+        boolean hasExecutable = executableName != null && !executableName.isEmpty();
+        String symbolFile = loadExecutable ? (hasExecutable ? executableName : null) : projectSettings.symbolFile;
+        boolean loadSymbols = symbolFile != null && !symbolFile.isEmpty();
+        // Only a debuggee that gdb starts itself can use a terminal here.
+        GdbInferiorTerminal inferiorTerminal = null;
+        if (projectSettings.gdbInferiorTerminal && (loadExecutable || "native".equals(projectSettings.gdbTargetType))) {
+            try {
+                inferiorTerminal = openInferiorTerminal();
+                // Right away, so that it's closed (see stop) even if setting up gdb fails before it's used
+                myInferiorTerminal = inferiorTerminal;
+            } catch (IOException e) { // for example on Windows
+                e.printStackTrace();
             }
-        } catch (GdbMiOperationException e) {
-            reportError("Could not load executable", e);
         }
-    }
 
-    private void setUpGdb(ExecutionEnvironment environment) throws IOException, InterruptedException {
-        ProjectSettingsState projectSettings = ProjectSettingsState.getInstance();
+        var commands = new ArrayList<GdbMiCommand>();
+        commands.add(new GdbMiCommand("-gdb-set", List.of("mi-async", "on")));
+        //gdbSet("interactive-mode", "on"); // just in case we use a pipe for communicating with gdb: force pty-like communication
+        commands.add(new GdbMiCommand("-enable-frame-filters"));
+        // So that containers (like Rust's Vec) are variable objects whose children are listed on demand, by the pretty printer
+        commands.add(new GdbMiCommand("-enable-pretty-printing"));
+        commands.add(new GdbMiCommand("-gdb-set", List.of("sysroot", projectSettings.gdbSysRoot)));
+        commands.add(new GdbMiCommand("-gdb-set", List.of("arch", projectSettings.gdbArch)));
+        if (loadExecutable) {
+            commands.add(new GdbMiCommand("-target-select", hasExecutable ? List.of("exec", executableName) : List.of("exec"))); // without executable: not that useful, but ehh.
+        }
+        if (loadSymbols) {
+            commands.add(new GdbMiCommand("-file-symbol-file", List.of(symbolFile)));
+        }
+        commands.add(new GdbMiCommand("-list-features"));
+        if (inferiorTerminal != null) {
+            commands.add(new GdbMiCommand("-inferior-tty-set", List.of(inferiorTerminal.getSlaveName())));
+        }
+        // gdbSend("-file-exec-and-symbols", new String[]{"/home/dannym/src/Oxide/main/amd-host-image-builder/target/debug/amd-host-image-builder"}, new String[0]);
+        // TODO: -exec-arguments args
+
+        var responses = myMiFilter.gdbBatch(commands).iterator();
         try {
-            gdbSet("mi-async", "on");
-        } catch (GdbMiOperationException e) {
+            myMiFilter.awaitCall(responses.next());
+        } catch (GdbMiOperationException | IOException e) {
             reportError("mi-async on failed", e);
         }
-        //gdbSet("interactive-mode", "on"); // just in case we use a pipe for communicating with gdb: force pty-like communication
-        gdbSend("-enable-frame-filters");
         try {
-            gdbSet("sysroot", projectSettings.gdbSysRoot);
-        } catch (GdbMiOperationException e) {
+            myMiFilter.awaitCall(responses.next());
+        } catch (GdbMiOperationException | IOException e) {
+            // Frame filters are optional
+        }
+        try {
+            myMiFilter.awaitCall(responses.next());
+        } catch (GdbMiOperationException | IOException e) {
+            // Pretty printers are optional
+        }
+        try {
+            myMiFilter.awaitCall(responses.next());
+        } catch (GdbMiOperationException | IOException e) {
             reportError("Could not set sysroot to " + projectSettings.gdbSysRoot, e);
         }
         try {
-            gdbSet("arch", projectSettings.gdbArch);
-        } catch (GdbMiOperationException e) {
+            myMiFilter.awaitCall(responses.next());
+        } catch (GdbMiOperationException | IOException e) {
             reportError("Could not set arch to " + projectSettings.gdbArch, e);
         }
-        if ("exec".equals(projectSettings.gdbTargetType)) {
-            loadExecutable(environment, projectSettings.gdbTargetArg);
-        } else try {
-            if (projectSettings.symbolFile != null && !projectSettings.symbolFile.isEmpty()) {
-                loadSymbols(projectSettings.symbolFile);
+        boolean targetFailed = false;
+        if (loadExecutable) {
+            try {
+                myMiFilter.awaitCall(responses.next());
+            } catch (GdbMiOperationException e) {
+                reportError("Could not load executable", e);
+                targetFailed = true;
+            }
+        }
+        if (loadSymbols) {
+            try {
+                myMiFilter.awaitCall(responses.next());
+            } catch (GdbMiOperationException e) {
+                if (!targetFailed) { // that was reported already
+                    reportError("Loading symbols failed", e);
+                }
             }
-        } catch (GdbMiOperationException e) {
-            reportError("Loading symbols failed", e);
         }
         try {
-            reportMessage(listFeatures().toString(), MessageType.INFO);
-        } catch (GdbMiOperationException e) {
+            reportMessage(myMiFilter.awaitCall(responses.next()).getList("features").toStringList().toString(), MessageType.INFO);
+        } catch (GdbMiOperationException | IOException | ClassCastException e) {
             e.printStackTrace();
         }
+        if (inferiorTerminal != null) {
+            try {
+                myMiFilter.awaitCall(responses.next());
+            } catch (GdbMiOperationException | IOException e) {
+                reportError("Could not give the debuggee a terminal of its own", e);
+                closeInferiorTerminal();
+            }
+        }
 //        try {
 //            reportMessage(infoGdbMiCommand("quux").toString(), MessageType.INFO);
 //        } catch (GdbMiOperationException e) {
 //            e.printStackTrace();
 //        }
-        // gdbSend("-file-exec-and-symbols", new String[]{"/home/dannym/src/Oxide/main/amd-host-image-builder/target/debug/amd-host-image-builder"}, new String[0]);
-        // TODO: -exec-arguments args
+    }
+
+    /// Sends all of COMMANDS at once; see GdbMiFilter.gdbBatch. Wait for the results with awaitCall.
+    public List<CompletableFuture<GdbMiStateResponse>> gdbBatch(List<GdbMiCommand> commands) throws IOException {
+        return myMiFilter.gdbBatch(commands);
+    }
+
+    public GdbMiTuple awaitCall(CompletableFuture<GdbMiStateResponse> response) throws GdbMiOperationException, IOException, InterruptedException {
+        return myMiFilter.awaitCall(response);
     }
 
     public DebugProcess(RunProfileState runProfileState, ExecutionEnvironment environment, Runner runner, XDebugSession session) throws IOException, ExecutionException {
@@ -509,6 +732,28 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         myEditorsProvider = new EditorsProvider();
         myEnvironment = environment;
         myMiFilter = new GdbMiFilter(this, environment.getProject(), (GdbOsProcessHandler) myProcessHandler);
+        myScheduler = new GdbMiScheduler(new GdbMiScheduler.Sender() {
+            @Override
+            public @NotNull CompletableFuture<GdbMiStateResponse> send(@NotNull String operation, @NotNull Iterable<String> options, @NotNull Iterable<String> parameters) throws IOException {
+                return myMiFilter.gdbSendAsync(operation, options, parameters);
+            }
+
+            @Override
+            public @NotNull List<CompletableFuture<GdbMiStateResponse>> sendBatch(@NotNull List<GdbMiCommand> commands) throws IOException {
+                return myMiFilter.gdbBatch(commands);
+            }
+        }, myMiFilter::getStopEpoch, getBackgroundExecutor());
+        myVarObjManager = new VarObjManager(new VarObjManager.Caller() {
+            @Override
+            public @NotNull CompletableFuture<GdbMiTuple> call(@NotNull GdbMiPriority priority, @NotNull String operation, @NotNull List<String> options) {
+                return gdbCallAsync(priority, operation, options, Collections.emptyList());
+            }
+
+            @Override
+            public @NotNull CompletableFuture<GdbMiTuple> batch(@NotNull GdbMiPriority priority, @NotNull List<GdbMiCommand> commands) {
+                return GdbMiFilter.checkResponseAsync(myScheduler.submitBatch(priority, commands));
+            }
+        }, myMiFilter::getStopEpoch, ProjectSettingsState.getInstance().maxVarObjCount);
 
         Disposer.register(myExecutionConsole, this);
         //@Nullable OutputStream childIn = executionResult.getProcessHandler().getProcessInput();
@@ -535,6 +780,10 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         return myBreakpointManager;
     }
 
+    public VarObjManager getVarObjManager() {
+        return myVarObjManager;
+    }
+
     @NotNull
     @Override
     public ExecutionConsole createConsole() {
@@ -561,6 +810,9 @@ public class DebugProcess extends XDebugProcess implements Disposable {
     public void stepInstruction(boolean reverse) throws GdbMiOperationException, IOException, InterruptedException {
         gdbCall("-exec-step-instruction", reverse ? List.of("--reverse") : Collections.emptyList());
     }
+    public CompletableFuture<GdbMiTuple> stepInstructionAsync(boolean reverse) {
+        return gdbCallAsync("-exec-step-instruction", reverse ? List.of("--reverse") : Collections.emptyList());
+    }
     public void nextInstruction(boolean reverse) throws GdbMiOperationException, IOException, InterruptedException {
         gdbCall("-exec-next-instruction", reverse ? List.of("--reverse") : Collections.emptyList());
     }
@@ -574,76 +826,51 @@ public class DebugProcess extends XDebugProcess implements Disposable {
     public void jump(String location) throws GdbMiOperationException, IOException, InterruptedException {
         gdbCall("-exec-jump", List.of(location));
     }
+    /// Starts the exec OPERATION (for example "-exec-next") without waiting for gdb to accept it.
+    private void startExec(String operation, List<String> options) {
+        gdbCallAsync(operation, options).exceptionally(throwable -> {
+            reportError("Could not " + operation, throwable);
+            return null;
+        });
+    }
     public List<String> listFeatures() throws GdbMiOperationException, ClassCastException, IOException, InterruptedException {
         // For example, GDB 12.1 has ^done,features=["frozen-varobjs","pending-breakpoints","thread-info","data-read-memory-bytes","breakpoint-notifications","ada-task-info","language-option","info-gdb-mi-command","undefined-command-error-code","exec-run-start-option","data-disassemble-a-option","python"]
-        return (List<String>) gdbCall("-list-features", Collections.emptyList()).get("features");
+        return gdbCall("-list-features", Collections.emptyList()).getList("features").toStringList();
     }
 
     /**
      *
      * https://github.com/daym/idea-native2-debugger/pull/6#discussion_r1002783308
      * @param commandName
-     * @return Map{"exists":true/false}
+     * @return {exists="true"/"false"}
      * @throws GdbMiOperationException
      * @throws IOException
      * @throws InterruptedException
      */
-    public Map<String, ?> infoGdbMiCommand(String commandName) throws GdbMiOperationException, IOException, InterruptedException {
-        return ((Map<String, Map<String, ?>>) gdbCall("-info-gdb-mi-command", commandName)).get("command");
+    public GdbMiTuple infoGdbMiCommand(String commandName) throws GdbMiOperationException, IOException, InterruptedException {
+        return gdbCall("-info-gdb-mi-command", commandName).getTuple("command");
     }
     @Override
     public void startStepOver(@Nullable XSuspendContext context) {
-        try {
-            next(false);
-        } catch (GdbMiOperationException | IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            // pucgenie: Most probably interrupted by the IDE.
-            e.printStackTrace();
-            //throw new RuntimeException(e);
-        }
+        startExec("-exec-next", Collections.emptyList());
     }
 
     @Override
     public void startStepInto(@Nullable XSuspendContext context) {
-        try {
-            step(false);
-        } catch (GdbMiOperationException | IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            // pucgenie: Most probably interrupted by the IDE.
-            e.printStackTrace();
-            //throw new RuntimeException(e);
-        }
+        startExec("-exec-step", Collections.emptyList());
     }
 
     @Override
     public void startStepOut(@Nullable XSuspendContext context) {
-        try {
-            finish(false);
-        } catch (GdbMiOperationException | IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            // pucgenie: Most probably interrupted by the IDE.
-            e.printStackTrace();
-            //throw new RuntimeException(e);
-        }
+        startExec("-exec-finish", Collections.emptyList());
     }
 
     @Override
     public void startPausing() {
-        try {
-            gdbSend("-exec-interrupt");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            // pucgenie: Most probably interrupted by the IDE.
-            e.printStackTrace();
-            //throw new RuntimeException(e);
-        }
+        gdbCallAsync("-exec-interrupt", Collections.emptyList()).exceptionally(throwable -> {
+            reportError("Could not pause", throwable);
+            return null;
+        });
         //getSession().pause();
     }
 
@@ -661,43 +888,53 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         }
         return gdbCall("-data-write-memory-bytes", List.of( addressExpr, contentsStream.toString() ));
     }
-    @SuppressWarnings("unchecked")
     public List<String> dataListChangedRegisters() throws GdbMiOperationException, ClassCastException, IOException, InterruptedException {
-        var result = gdbCall("-data-list-changed-registers", Collections.emptyList());
         // ^done,changed-registers=[...]
-        if (result.containsKey("changed-registers")) {
-            return (List<String>) result.get("changed-registers");
-        } else {
-            throw new RuntimeException("invalid result");
-        }
+        return stringListOf(gdbCall("-data-list-changed-registers", Collections.emptyList()), "changed-registers");
+    }
+    public CompletableFuture<List<String>> dataListChangedRegistersAsync() {
+        return gdbCallAsync("-data-list-changed-registers", Collections.emptyList()).thenApply(result -> stringListOf(result, "changed-registers"));
     }
-    @SuppressWarnings("unchecked")
     public List<String> dataListRegisterNames() throws GdbMiOperationException, ClassCastException, IOException, InterruptedException {
-        var result = gdbCall("-data-list-register-names", Collections.emptyList());
-        if (result.containsKey("register-names")) {
-            return (List<String>) result.get("register-names");
+        return stringListOf(gdbCall("-data-list-register-names", Collections.emptyList()), "register-names");
+    }
+    public CompletableFuture<List<String>> dataListRegisterNamesAsync() {
+        return gdbCallAsync("-data-list-register-names", Collections.emptyList()).thenApply(result -> stringListOf(result, "register-names"));
+    }
+    private static List<String> stringListOf(GdbMiTuple result, String key) throws ClassCastException {
+        if (result.containsKey(key)) {
+            return result.getList(key).toStringList();
         } else {
             throw new RuntimeException("invalid result");
         }
     }
 
     // TODO: Arg: list of registers
-    @SuppressWarnings("unchecked")
-    public List<Map<String, ?>> dataListRegisterValues(String fmt) throws GdbMiOperationException, ClassCastException, IOException, InterruptedException {
-        var result = gdbCall("-data-list-register-values", fmt);
+    /// Returns a list of tuples {number, value}. Use getRow() to access them.
+    public GdbMiList dataListRegisterValues(String fmt) throws GdbMiOperationException, ClassCastException, IOException, InterruptedException {
+        return registerValuesOf(gdbCall("-data-list-register-values", fmt));
+    }
+    public CompletableFuture<GdbMiList> dataListRegisterValuesAsync(String fmt) {
+        return gdbCallAsync("-data-list-register-values", List.of(fmt)).thenApply(DebugProcess::registerValuesOf);
+    }
+    private static GdbMiList registerValuesOf(GdbMiTuple result) throws ClassCastException {
         if (result.containsKey("register-values")) {
-            return (List<Map<String, ?>>) result.get("register-values");
+            return result.getList("register-values");
         } else {
             throw new RuntimeException("invalid dataListRegisterValues result");
         }
     }
 
-    public Map<String, List<Map.Entry<String, ?>>> dataDisassemble(String beginningAddress, String endAddress, GdbMiDisassemblyMode mode) throws GdbMiOperationException, IOException, InterruptedException {
-        return (Map<String, List<Map.Entry<String, ?>>>) gdbCall("-data-disassemble", List.of( "-s", beginningAddress, "-e", endAddress ), List.of( Integer.toString(mode.code()) ));
+    /// Note: The lists of instructions in the result (asm_insns or line_asm_insn) are usually columnar. Use getRow() to access them.
+    public GdbMiTuple dataDisassemble(String beginningAddress, String endAddress, GdbMiDisassemblyMode mode) throws GdbMiOperationException, IOException, InterruptedException {
+        return gdbCall("-data-disassemble", List.of( "-s", beginningAddress, "-e", endAddress ), List.of( Integer.toString(mode.code()) ));
+    }
+    public CompletableFuture<GdbMiTuple> dataDisassembleAsync(String beginningAddress, String endAddress, GdbMiDisassemblyMode mode) {
+        return gdbCallAsync("-data-disassemble", List.of( "-s", beginningAddress, "-e", endAddress ), List.of( Integer.toString(mode.code()) ));
     }
 
     // FIXME: allow specifying endAddress
-    public Map<String, ?> dataDisassembleFile(String filename, int linenum, Optional<Integer> lineCount, boolean includeHighlevelSource) throws GdbMiOperationException, IOException, InterruptedException {
+    public GdbMiTuple dataDisassembleFile(String filename, int linenum, Optional<Integer> lineCount, boolean includeHighlevelSource) throws GdbMiOperationException, IOException, InterruptedException {
         var options = new ArrayList<String>();
         options.add("-f");
         options.add(filename);
@@ -715,6 +952,7 @@ public class DebugProcess extends XDebugProcess implements Disposable {
     @Override
     public void stop() {
         // Note: IDEA usually calls this AFTER the process was already terminated.
+        closeInferiorTerminal();
         if (!myProcessHandler.isProcessTerminated()) {
             try {
                 gdbSend("-gdb-exit");
@@ -736,15 +974,10 @@ public class DebugProcess extends XDebugProcess implements Disposable {
 
     @Override
     public void resume(@Nullable XSuspendContext context) {
-        try {
-            gdbSend("-exec-continue");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            // pucgenie: Most probably interrupted by the IDE.
-            e.printStackTrace();
-            //throw new RuntimeException(e);
-        }
+        gdbCallAsync("-exec-continue", Collections.emptyList()).exceptionally(throwable -> {
+            reportError("Could not resume", throwable);
+            return null;
+        });
     }
 
     @Override
@@ -753,29 +986,31 @@ public class DebugProcess extends XDebugProcess implements Disposable {
 
     @Override
     public void runToPosition(@NotNull XSourcePosition position, @Nullable XSuspendContext context) {
-        try {
-            until(Optional.of(BreakpointManager.fileLineReference(position)));
-        } catch (RuntimeException | IOException e) {
-//            e.printStackTrace();
+        gdbCallAsync("-exec-until", List.of(BreakpointManager.fileLineReference(position))).exceptionally(throwable -> {
 //            final PsiFile psiFile = PsiManager.getInstance(getSession().getProject()).findFile(position.getFile());
 //            assert psiFile != null;
 //            StatusBar.Info.set(DebuggerBundle.message("status.bar.text.not.valid.position.in.file", psiFile.getName()), psiFile.getProject());
             //final Debugger c = myDebuggerSession.getClient();
-            reportError("Cannot run to that position");
-        } catch (GdbMiOperationException e) {
-            reportError("Cannot run to that position", e);
-        } catch (InterruptedException e) {
-            // pucgenie: Most probably interrupted by the IDE.
-            e.printStackTrace();
-            //throw new RuntimeException(e);
-        }
+            reportError("Cannot run to that position", throwable);
+            return null;
+        });
     }
 
     public void startDebugging() throws IOException, InterruptedException {
         isGDBconnected = true; // FIXME
-        myMiFilter.startReaderThread();
-        setUpGdb(myEnvironment);
-        getSession().initBreakpoints();
+        try {
+            setUpGdb(myEnvironment);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            closeInferiorTerminal();
+            throw e;
+        }
+        // Insert all the breakpoints at once
+        myBreakpointManager.beginBatch();
+        try {
+            getSession().initBreakpoints();
+        } finally {
+            myBreakpointManager.endBatch();
+        }
         try {
             execRun();
         } catch (GdbMiOperationException e) {
@@ -783,8 +1018,8 @@ public class DebugProcess extends XDebugProcess implements Disposable {
         }
     }
 
-    public void processAsync(Optional<String> token, @NotNull Scanner scanner) throws IOException, InterruptedException {
-        myMiFilter.processAsync(token, scanner);
+    public void processAsync(Optional<String> token, @NotNull GdbMiLexer lexer) {
+        myMiFilter.processAsync(token, lexer);
     }
 
     private void registerMemoryViewPanel(@NotNull RunnerLayoutUi ui) {
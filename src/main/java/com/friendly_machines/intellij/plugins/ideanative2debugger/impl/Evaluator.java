@@ -9,28 +9,78 @@ import com.intellij.xdebugger.evaluation.XDebuggerEvaluator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
-
 public class Evaluator extends XDebuggerEvaluator {
     private final StackFrame myFrame;
     private final DebugProcess mySession;
 
     @Override
     public void evaluate(@NotNull String s, @NotNull XEvaluationCallback xEvaluationCallback, @Nullable XSourcePosition xSourcePosition) {
-        try {
-            var result = mySession.evaluate(s, myFrame.getThreadId(), myFrame.getLevel());
-            var value = (String) result.get("value");
-            xEvaluationCallback.evaluated(new Value("eval", value, false));
-        } catch (GdbMiOperationException e) {
+        if (mayHaveSideEffects(s)) {
+            evaluateOnce(s, xEvaluationCallback);
+            return;
+        }
+        // As a variable object, so that a watch is only reformatted by gdb when its value changed, and can be expanded (see VarObjManager)
+        var varObjManager = mySession.getVarObjManager();
+        varObjManager.getWatch(myFrame.getThreadId(), myFrame.getFrameKey(), myFrame.getLevel(), s).whenComplete((varObj, throwable) -> {
+            if (throwable == null) {
+                xEvaluationCallback.evaluated(new Value("eval", varObj, false, varObjManager));
+            } else {
+                reportError(throwable, xEvaluationCallback);
+            }
+        });
+    }
+
+    // Not as a variable object: that would stay around and have gdb evaluate S (and its side effects) again on each "-var-update".
+    private void evaluateOnce(@NotNull String s, @NotNull XEvaluationCallback xEvaluationCallback) {
+        mySession.evaluateAsync(s, myFrame.getThreadId(), myFrame.getLevel()).whenComplete((result, throwable) -> {
+            // S could have changed what the variable objects show
+            mySession.getVarObjManager().invalidate();
+            if (throwable == null) {
+                try {
+                    var value = result.getString("value");
+                    xEvaluationCallback.evaluated(new Value("eval", value, false));
+                } catch (ClassCastException e) {
+                    xEvaluationCallback.errorOccurred("Could not evaluate " + s);
+                }
+            } else {
+                reportError(throwable, xEvaluationCallback);
+            }
+        });
+    }
+
+    private static void reportError(@NotNull Throwable throwable, @NotNull XEvaluationCallback xEvaluationCallback) {
+        if (DebugProcess.unwrap(throwable) instanceof GdbMiOperationException e) {
             xEvaluationCallback.errorOccurred(e.getDetails().getAttributes().toString());
-        } catch (ClassCastException e) {
-            xEvaluationCallback.errorOccurred("Could not evaluate " + s);
-        } catch (IOException e) {
-            e.printStackTrace();
-            xEvaluationCallback.errorOccurred(e.toString());
-        } catch (InterruptedException e) {
-            // just stop
+        } else {
+            throwable.printStackTrace();
+            xEvaluationCallback.errorOccurred(DebugProcess.unwrap(throwable).toString());
+        }
+    }
+
+    /**
+     * Whether evaluating EXPRESSION could change something: a call, an assignment, or an increment or decrement.
+     * Errs on the side of yes--a cast looks like a call, too.
+     */
+    static boolean mayHaveSideEffects(@NotNull String expression) {
+        for (int i = 0; i < expression.length(); ++i) {
+            char c = expression.charAt(i);
+            char next = i + 1 < expression.length() ? expression.charAt(i + 1) : 0;
+            if (c == '(' || ((c == '+' || c == '-') && next == c)) {
+                return true;
+            }
+            if (c == '=') {
+                if (next == '=') { // "=="
+                    ++i;
+                    continue;
+                }
+                char previous = i > 0 ? expression.charAt(i - 1) : 0;
+                boolean comparison = previous == '!' || ((previous == '<' || previous == '>') && (i < 2 || expression.charAt(i - 2) != previous));
+                if (!comparison) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
 
     public Evaluator(DebugProcess session, StackFrame frame) {
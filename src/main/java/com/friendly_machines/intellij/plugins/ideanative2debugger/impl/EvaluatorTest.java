@@ -0,0 +1,15 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+    @org.junit.jupiter.api.Test
+    void mayHaveSideEffects() {
+        for (var expression : new String[] {"i", "p->next", "v[3] == 4", "a != b", "a <= b", "a >= -1", "s.len - 1", "*p"}) {
+            assertFalse(Evaluator.mayHaveSideEffects(expression), expression);
+        }
+        for (var expression : new String[] {"f(1)", "i = 2", "i += 2", "x <<= 1", "++i", "i--", "(int) c"}) {
+            assertTrue(Evaluator.mayHaveSideEffects(expression), expression);
+        }
+    }
+}
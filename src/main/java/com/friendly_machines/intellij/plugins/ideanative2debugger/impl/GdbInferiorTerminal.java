@@ -0,0 +1,78 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The terminal of the debuggee (see "-inferior-tty-set"): a pty whose output is read by a thread of its own and goes to SINK.
+ * Otherwise, the debuggee shares gdb's stdout, and everything it prints passes through the MI parser, competing with the responses.
+ */
+public class GdbInferiorTerminal {
+    private final GdbPty myPty;
+    private final GdbMiConsoleSink mySink;
+
+    private GdbInferiorTerminal(@NotNull GdbPty pty, @NotNull GdbMiConsoleSink sink) {
+        myPty = pty;
+        mySink = sink;
+    }
+
+    /**
+     * Allocates the pty and starts reading it.
+     * @param sink where the output goes, as target output ('@')
+     * @throws IOException if there can't be a pty (for example on Windows)
+     */
+    @NotNull
+    public static GdbInferiorTerminal open(@NotNull GdbMiConsoleSink sink) throws IOException {
+        var result = new GdbInferiorTerminal(GdbPty.open(), sink);
+        var thread = new Thread(result::run, "debuggee output");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /// The name to pass to "-inferior-tty-set".
+    @NotNull
+    public String getSlaveName() {
+        return myPty.getSlaveName();
+    }
+
+    private void run() {
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final var bytes = ByteBuffer.allocate(64 * 1024);
+        final var chars = CharBuffer.allocate(64 * 1024);
+        try (InputStream input = myPty.getInputStream()) {
+            while (true) {
+                int count = input.read(bytes.array(), bytes.position(), bytes.remaining());
+                if (count < 0) {
+                    break;
+                }
+                bytes.position(bytes.position() + count);
+                bytes.flip();
+                // An incomplete UTF-8 sequence at the end stays in BYTES until the next read.
+                decoder.decode(bytes, chars, false);
+                bytes.compact();
+                chars.flip();
+                mySink.write('@', chars);
+                chars.clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /// Closes the pty, which also ends the reading thread.
+    public void close() {
+        myPty.close();
+    }
+}
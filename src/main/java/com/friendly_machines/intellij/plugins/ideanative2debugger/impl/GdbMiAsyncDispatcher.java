@@ -0,0 +1,129 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the async records ("*", "=", "+") that the reader thread parsed to the UI thread in batches--at most one batch per UI frame, and only one at a time.
+ * When a big process starts, gdb sends hundreds of "=library-loaded" and "=thread-created" records; each of them used to be a task of its own on the UI thread.
+ * Now, repeated informational records are coalesced into one Aggregate per class, and a batch contains at most a limited number of records, so that the UI thread
+ * still gets to the user's actions in between.
+ * The records that change the debugger state ("*stopped", "=breakpoint-modified" and so on) are never coalesced and keep their order.
+ */
+public class GdbMiAsyncDispatcher {
+    /**
+     * COUNT records of the notification class KLASS.
+     * @param attributes the attributes of the first of these records (at most ourMaxAttributesPerAggregate of them), in order
+     */
+    public record Aggregate(@NotNull String klass, int count, @NotNull List<GdbMiTuple> attributes) {
+    }
+
+    public interface Handler {
+        /// Called in the UI thread. Note: AGGREGATES are not ordered relative to RECORDS.
+        void handleAsyncRecords(@NotNull List<GdbMiStateResponse> records, @NotNull List<Aggregate> aggregates);
+    }
+
+    private static final long ourFrameMillis = 16;
+    // Aggregates are collected for longer, so that a storm of notifications is reported a few times rather than in every frame.
+    private static final long ourAggregateMillis = 500;
+    private static final int ourMaxRecordsPerBatch = 64;
+    private static final int ourMaxAttributesPerAggregate = 256;
+
+    private final Handler myHandler;
+    private final Executor myUiExecutor;
+    private final ScheduledExecutorService myScheduler;
+
+    // Guarded by this
+    private final ArrayDeque<GdbMiStateResponse> myRecords = new ArrayDeque<>();
+    private final LinkedHashMap<String, List<GdbMiTuple>> myAggregateAttributes = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Integer> myAggregateCounts = new LinkedHashMap<>();
+    private long myAggregatesSinceNanos;
+    // Whether a batch is scheduled or being handled
+    private boolean myBusy = false;
+
+    public GdbMiAsyncDispatcher(@NotNull Handler handler, @NotNull Executor uiExecutor, @NotNull ScheduledExecutorService scheduler) {
+        myHandler = handler;
+        myUiExecutor = uiExecutor;
+        myScheduler = scheduler;
+    }
+
+    /// Whether RECORD is just informational, so it's fine to report it together with others of its kind.
+    public static boolean isCoalescable(@NotNull GdbMiStateResponse record) {
+        return switch (record.getMode()) {
+            case '+' -> true;
+            case '=' -> !record.getKlass().startsWith("breakpoint-");
+            default -> false;
+        };
+    }
+
+    /// Called in the reader thread; doesn't block.
+    public void dispatch(@NotNull GdbMiStateResponse record) {
+        synchronized (this) {
+            if (isCoalescable(record)) {
+                var klass = record.getKlass();
+                if (myAggregateCounts.isEmpty()) {
+                    myAggregatesSinceNanos = System.nanoTime();
+                }
+                myAggregateCounts.merge(klass, 1, Integer::sum);
+                var attributes = myAggregateAttributes.computeIfAbsent(klass, k -> new ArrayList<>());
+                if (attributes.size() < ourMaxAttributesPerAggregate) {
+                    attributes.add(record.getAttributes());
+                }
+            } else {
+                myRecords.add(record);
+            }
+            if (!myBusy) {
+                myBusy = true;
+                myScheduler.schedule(this::flush, ourFrameMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void flush() {
+        final var records = new ArrayList<GdbMiStateResponse>();
+        final var aggregates = new ArrayList<Aggregate>();
+        synchronized (this) {
+            while (records.size() < ourMaxRecordsPerBatch && !myRecords.isEmpty()) {
+                records.add(myRecords.poll());
+            }
+            if (!myAggregateCounts.isEmpty() && System.nanoTime() - myAggregatesSinceNanos >= TimeUnit.MILLISECONDS.toNanos(ourAggregateMillis)) {
+                for (var entry : myAggregateCounts.entrySet()) {
+                    aggregates.add(new Aggregate(entry.getKey(), entry.getValue(), myAggregateAttributes.get(entry.getKey())));
+                }
+                myAggregateCounts.clear();
+                myAggregateAttributes.clear();
+            }
+            if (records.isEmpty() && aggregates.isEmpty()) { // only aggregates that are too young
+                rescheduleLocked();
+                return;
+            }
+        }
+        myUiExecutor.execute(() -> {
+            try {
+                myHandler.handleAsyncRecords(records, aggregates);
+            } finally {
+                synchronized (this) {
+                    rescheduleLocked();
+                }
+            }
+        });
+    }
+
+    // Note: Call with this locked.
+    private void rescheduleLocked() {
+        if (myRecords.isEmpty() && myAggregateCounts.isEmpty()) {
+            myBusy = false;
+        } else {
+            myScheduler.schedule(this::flush, ourFrameMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
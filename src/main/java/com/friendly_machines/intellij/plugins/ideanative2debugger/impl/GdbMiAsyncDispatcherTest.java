@@ -0,0 +1,48 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdbMiAsyncDispatcherTest {
+    @org.junit.jupiter.api.Test
+    void asyncDispatcher() throws InterruptedException {
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var records = new CopyOnWriteArrayList<GdbMiStateResponse>();
+            var aggregates = new CopyOnWriteArrayList<GdbMiAsyncDispatcher.Aggregate>();
+            var batches = new AtomicInteger();
+            var done = new CountDownLatch(1);
+            var dispatcher = new GdbMiAsyncDispatcher((batchRecords, batchAggregates) -> {
+                batches.incrementAndGet();
+                records.addAll(batchRecords);
+                aggregates.addAll(batchAggregates);
+                if (!batchAggregates.isEmpty()) {
+                    done.countDown();
+                }
+            }, Runnable::run, scheduler);
+            for (int i = 0; i < 300; ++i) {
+                dispatcher.dispatch(GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer("=library-loaded,id=\"/lib/lib" + i + ".so\"")));
+                if (i == 100) {
+                    dispatcher.dispatch(GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer("*stopped,reason=\"signal-received\"")));
+                }
+            }
+            dispatcher.dispatch(GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer("=breakpoint-deleted,id=\"1\"")));
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(2, records.size());
+            assertEquals("stopped", records.get(0).getKlass());
+            assertEquals("breakpoint-deleted", records.get(1).getKlass());
+            assertEquals(1, aggregates.size());
+            assertEquals(300, aggregates.get(0).count());
+            assertEquals("/lib/lib0.so", aggregates.get(0).attributes().get(0).getString("id"));
+            assertTrue(batches.get() < 10);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Raw GDB/MI output bytes, seen as characters without decoding them.
+ * MI3 itself is 7-bit ASCII; bytes above that can only occur inside c-strings and are decoded (as UTF-8) when such a string is read.
+ * Note: This does not copy BYTES, so it is only valid as long as the caller does not reuse that buffer.
+ */
+public final class GdbMiByteSequence implements CharSequence {
+    private final byte[] myBytes;
+    private final int myOffset;
+    private final int myLength;
+
+    public GdbMiByteSequence(byte @NotNull [] bytes, int offset, int length) {
+        myBytes = bytes;
+        myOffset = offset;
+        myLength = length;
+    }
+
+    @Override
+    public int length() {
+        return myLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (myBytes[myOffset + index] & 0xFF);
+    }
+
+    @NotNull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new GdbMiByteSequence(myBytes, myOffset + start, end - start);
+    }
+
+    /// Returns a copy of the bytes between START and END that stays valid when the original buffer is reused.
+    @NotNull
+    public GdbMiByteSequence copy(int start, int end) {
+        return new GdbMiByteSequence(Arrays.copyOfRange(myBytes, myOffset + start, myOffset + end), 0, end - start);
+    }
+
+    @NotNull
+    public String decode(int start, int end) {
+        return new String(myBytes, myOffset + start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return decode(0, myLength);
+    }
+}
@@ -0,0 +1,237 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.OptionalLong;
+
+/**
+ * The tuples of a list stored by column, for lists like register-values=[{number="0",value="0x1"},...] or stack=[frame={...},...].
+ * This is used when all tuples have the same fields (in the same order) and only c-string values.
+ * Instead of a tuple (and a GdbMiConst per field) per row, there is one array per field: a long[] if all the values in it are numbers
+ * (so they can be printed back exactly as they were), otherwise a String[].
+ * Rows are accessed via getRow(), which does not copy anything.
+ */
+final class GdbMiColumns {
+    /// Lists with fewer rows are not worth it.
+    static final int MIN_ROWS = 4;
+
+    // For long columns: how the numbers were written
+    private static final byte DECIMAL = 0;
+    // Otherwise it is the number of hex digits after "0x" (GDB pads addresses with zeroes)
+
+    private final String[] myFieldNames;
+    private final Object[] myColumns; // String[] or long[]
+    private final byte[] myFormats;
+    private final int myRowCount;
+
+    private GdbMiColumns(@NotNull String @NotNull [] fieldNames, @NotNull Object @NotNull [] columns, byte @NotNull [] formats, int rowCount) {
+        myFieldNames = fieldNames;
+        myColumns = columns;
+        myFormats = formats;
+        myRowCount = rowCount;
+    }
+
+    /// Roughly how many bytes of memory the columns take.
+    long estimateSize() {
+        long result = 48 + 8L * myFieldNames.length + myFormats.length;
+        for (var column : myColumns) {
+            if (column instanceof long[] longs) {
+                result += 16 + 8L * longs.length;
+            } else {
+                var strings = (String[]) column;
+                result += 16 + 8L * strings.length;
+                for (var string : strings) {
+                    if (string != null) {
+                        result += GdbMiValue.estimateSize(string);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the fields of the rows on the lexer's item stack as columns, or null if they don't all have the same fields or some field is not a c-string.
+     * Row i consists of the items from ROWBOUNDS[i] to ROWBOUNDS[i+1].
+     */
+    @Nullable
+    static GdbMiColumns create(@NotNull GdbMiLexer lexer, int @NotNull [] rowBounds, int rowCount) {
+        final int fieldCount = rowBounds[1] - rowBounds[0];
+        if (rowCount < MIN_ROWS || fieldCount == 0) {
+            return null;
+        }
+        final int first = rowBounds[0];
+        for (int row = 0; row < rowCount; ++row) {
+            final int start = rowBounds[row];
+            if (rowBounds[row + 1] - start != fieldCount) {
+                return null;
+            }
+            for (int field = 0; field < fieldCount; ++field) {
+                var name = lexer.getItemName(start + field);
+                if (name == null || !(lexer.getItemValue(start + field) instanceof String)) { // not a tuple, or not a c-string
+                    return null;
+                }
+                if (row > 0 && !name.equals(lexer.getItemName(first + field))) {
+                    return null;
+                }
+            }
+        }
+        final var columns = new Object[fieldCount];
+        final var formats = new byte[fieldCount];
+        for (int field = 0; field < fieldCount; ++field) {
+            final var strings = new String[rowCount];
+            for (int row = 0; row < rowCount; ++row) {
+                strings[row] = (String) lexer.getItemValue(rowBounds[row] + field);
+            }
+            final int format = numberFormat(strings[0]);
+            long[] numbers = format >= 0 ? new long[rowCount] : null;
+            for (int row = 0; numbers != null && row < rowCount; ++row) {
+                var s = strings[row];
+                if (numberFormat(s) != format) {
+                    numbers = null;
+                } else if (format == DECIMAL) {
+                    numbers[row] = Long.parseLong(s);
+                } else {
+                    numbers[row] = Long.parseUnsignedLong(s, 2, s.length(), 16);
+                }
+            }
+            columns[field] = numbers != null ? numbers : strings;
+            formats[field] = (byte) format;
+        }
+        return new GdbMiColumns(lexer.copyItemNames(first, first + fieldCount), columns, formats, rowCount);
+    }
+
+    /// Returns DECIMAL or the number of hex digits if S can be stored as a long and printed back exactly the same. Otherwise returns -1.
+    private static int numberFormat(@NotNull String s) {
+        final int length = s.length();
+        if (length > 2 && length <= 2 + 16 && s.charAt(0) == '0' && s.charAt(1) == 'x') {
+            for (int i = 2; i < length; ++i) {
+                char c = s.charAt(i);
+                if (!GdbMiLexer.isDigit(c) && (c < 'a' || c > 'f')) {
+                    return -1;
+                }
+            }
+            return length - 2;
+        }
+        if (length == 0 || length > 18 || (s.charAt(0) == '0' && length > 1)) {
+            return -1;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (!GdbMiLexer.isDigit(s.charAt(i))) {
+                return -1;
+            }
+        }
+        return DECIMAL;
+    }
+
+    int size() {
+        return myRowCount;
+    }
+
+    int getFieldCount() {
+        return myFieldNames.length;
+    }
+
+    @NotNull
+    String getFieldName(int field) {
+        return myFieldNames[field];
+    }
+
+    int indexOfField(@NotNull String name) {
+        for (int i = 0; i < myFieldNames.length; ++i) {
+            if (name.equals(myFieldNames[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @NotNull
+    String getString(int row, int field) {
+        final var column = myColumns[field];
+        if (column instanceof String[] strings) {
+            return strings[row];
+        }
+        final long number = ((long[]) column)[row];
+        final int format = myFormats[field];
+        if (format == DECIMAL) {
+            return Long.toString(number);
+        }
+        var digits = Long.toHexString(number);
+        return "0x" + "0".repeat(Math.max(0, format - digits.length())) + digits;
+    }
+
+    @NotNull
+    OptionalLong getLong(int row, int field) throws NumberFormatException {
+        final var column = myColumns[field];
+        if (column instanceof long[] numbers) {
+            return OptionalLong.of(numbers[row]);
+        }
+        return OptionalLong.of(GdbMiResults.parseNumber(((String[]) column)[row]));
+    }
+
+    /// Makes a standalone tuple out of the row
+    @NotNull
+    GdbMiTuple getTuple(int row) {
+        final int fieldCount = myFieldNames.length;
+        final var values = new GdbMiValue[fieldCount];
+        for (int field = 0; field < fieldCount; ++field) {
+            values[field] = new GdbMiConst(getString(row, field));
+        }
+        return new GdbMiTuple(myFieldNames, values);
+    }
+
+    @NotNull
+    Row getRow(int row) {
+        return new Row(row);
+    }
+
+    /// View of one row. Only the values that are asked for are converted.
+    final class Row implements GdbMiResults {
+        private final int myRow;
+
+        private Row(int row) {
+            myRow = row;
+        }
+
+        @Override
+        public int size() {
+            return myFieldNames.length;
+        }
+
+        @Override
+        public @NotNull String getName(int index) {
+            return myFieldNames[index];
+        }
+
+        @Override
+        public @NotNull GdbMiValue getValue(int index) {
+            return new GdbMiConst(GdbMiColumns.this.getString(myRow, index));
+        }
+
+        @Override
+        public int indexOf(@NotNull String name) {
+            return indexOfField(name);
+        }
+
+        @Override
+        public @Nullable String getString(@NotNull String name) {
+            int field = indexOfField(name);
+            return field != -1 ? GdbMiColumns.this.getString(myRow, field) : null;
+        }
+
+        @Override
+        public @NotNull OptionalLong getLong(@NotNull String name) throws NumberFormatException {
+            int field = indexOfField(name);
+            return field != -1 ? GdbMiColumns.this.getLong(myRow, field) : OptionalLong.empty();
+        }
+
+        @Override
+        public String toString() {
+            return GdbMiColumns.this.getTuple(myRow).toString();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * One GDB/MI command (see GdbMiFilter.gdbBatch).
+ * @param operation for example "-break-insert"
+ * @param parameters are sent after a "--" (if there are any)
+ */
+public record GdbMiCommand(@NotNull String operation, @NotNull List<String> options, @NotNull List<String> parameters) {
+    public GdbMiCommand(@NotNull String operation, @NotNull List<String> options) {
+        this(operation, options, List.of());
+    }
+
+    public GdbMiCommand(@NotNull String operation) {
+        this(operation, List.of(), List.of());
+    }
+}
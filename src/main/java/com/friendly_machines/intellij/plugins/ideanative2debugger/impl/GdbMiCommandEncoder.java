@@ -0,0 +1,161 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes GDB/MI command lines directly into a byte buffer that is reused for all commands.
+ * Neither the token nor the arguments are converted into intermediate Strings or byte arrays; each argument is escaped (if necessary) in a single pass.
+ * Note: Not thread-safe. GdbMiFilter uses one per gdb, guarded by the lock of gdb's stdin.
+ */
+public class GdbMiCommandEncoder {
+    private byte[] myBytes;
+    private int mySize;
+
+    public GdbMiCommandEncoder(int initialCapacity) {
+        myBytes = new byte[initialCapacity];
+    }
+
+    public GdbMiCommandEncoder() {
+        this(4096);
+    }
+
+    public void reset() {
+        mySize = 0;
+    }
+
+    public int size() {
+        return mySize;
+    }
+
+    public void writeTo(@NotNull OutputStream out) throws IOException {
+        out.write(myBytes, 0, mySize);
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return new String(myBytes, 0, mySize, StandardCharsets.UTF_8);
+    }
+
+    /// Appends the MI command line, including the line terminator.
+    public void appendCommand(int token, @NotNull String operation, @NotNull Iterable<String> options, @NotNull Iterable<String> parameters) {
+        appendToken(token);
+        appendAscii(operation);
+        for (var option : options) {
+            appendByte(' ');
+            appendArgument(option);
+        }
+        boolean first = true;
+        for (var parameter : parameters) {
+            if (first) {
+                // mind the space being PREfixed to all following parameters
+                appendAscii(" --");
+                first = false;
+            }
+            appendByte(' ');
+            appendArgument(parameter);
+        }
+        appendAscii("\r\n");
+    }
+
+    public void appendCommand(int token, @NotNull GdbMiCommand command) {
+        appendCommand(token, command.operation(), command.options(), command.parameters());
+    }
+
+    void appendToken(int token) {
+        if (token < 0) {
+            throw new IllegalArgumentException("token must not be negative");
+        }
+        int digitCount = 1;
+        for (int rest = token / 10; rest != 0; rest /= 10) {
+            ++digitCount;
+        }
+        ensureCapacity(digitCount);
+        for (int i = mySize + digitCount - 1; i >= mySize; --i) {
+            myBytes[i] = (byte) ('0' + token % 10);
+            token /= 10;
+        }
+        mySize += digitCount;
+    }
+
+    // Note: Only for our own syntax (operation names and the like), so no escaping.
+    private void appendAscii(@NotNull String text) {
+        int length = text.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; ++i) {
+            myBytes[mySize++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void appendByte(int b) {
+        ensureCapacity(1);
+        myBytes[mySize++] = (byte) b;
+    }
+
+    // Given TEXT, appends its UTF-8 encoding--escaped into a C string if it contains whitespace, control characters, backslashes or anything non-ASCII.
+    void appendArgument(@NotNull String text) {
+        int start = mySize;
+        boolean quoted = false;
+        int length = text.length();
+        for (int i = 0; i < length; ++i) {
+            char c = text.charAt(i);
+            if (Character.isSurrogate(c) && !(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1)))) {
+                c = '?'; // like String.getBytes does
+            }
+            if (c > ' ' && c < 0x80 && c != '\\') {
+                appendByte(c);
+                continue;
+            }
+            if (!quoted) {
+                // Everything so far didn't need escaping, so it can stay as it is--but it needs a quote in front.
+                ensureCapacity(1);
+                System.arraycopy(myBytes, start, myBytes, start + 1, mySize - start);
+                myBytes[start] = '"';
+                ++mySize;
+                quoted = true;
+            }
+            if (c == ' ') {
+                appendByte(' ');
+            } else if (c < 0x80) {
+                appendOctalEscape(c);
+            } else if (c < 0x800) {
+                appendOctalEscape(0xC0 | (c >> 6));
+                appendOctalEscape(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                appendOctalEscape(0xF0 | (codePoint >> 18));
+                appendOctalEscape(0x80 | ((codePoint >> 12) & 0x3F));
+                appendOctalEscape(0x80 | ((codePoint >> 6) & 0x3F));
+                appendOctalEscape(0x80 | (codePoint & 0x3F));
+            } else {
+                appendOctalEscape(0xE0 | (c >> 12));
+                appendOctalEscape(0x80 | ((c >> 6) & 0x3F));
+                appendOctalEscape(0x80 | (c & 0x3F));
+            }
+        }
+        if (quoted) {
+            appendByte('"');
+        }
+    }
+
+    private void appendOctalEscape(int b) {
+        ensureCapacity(4);
+        myBytes[mySize++] = '\\';
+        myBytes[mySize++] = (byte) ('0' + ((b >> 6) & 7));
+        myBytes[mySize++] = (byte) ('0' + ((b >> 3) & 7));
+        myBytes[mySize++] = (byte) ('0' + (b & 7));
+    }
+
+    private void ensureCapacity(int additional) {
+        if (mySize + additional > myBytes.length) {
+            myBytes = Arrays.copyOf(myBytes, Math.max(myBytes.length * 2, mySize + additional));
+        }
+    }
+}
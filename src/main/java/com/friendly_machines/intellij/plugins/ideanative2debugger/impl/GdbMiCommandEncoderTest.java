@@ -0,0 +1,18 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdbMiCommandEncoderTest {
+    @org.junit.jupiter.api.Test
+    void encodeCommand() {
+        var encoder = new GdbMiCommandEncoder(8);
+        encoder.appendCommand(1234, new GdbMiCommand("-break-insert", List.of("-t", "/src/My Project/main.rs:42")));
+        encoder.appendCommand(0, new GdbMiCommand("-data-evaluate-expression", List.of(), List.of("a\\b", "\u00fc\t")));
+        assertEquals("1234-break-insert -t \"/src/My Project/main.rs:42\"\r\n0-data-evaluate-expression -- \"a\\134b\" \"\\303\\274\\011\"\r\n", encoder.toString());
+        encoder.reset();
+        encoder.appendCommand(7, new GdbMiCommand("-list-features"));
+        assertEquals("7-list-features\r\n", encoder.toString());
+    }
+}
@@ -0,0 +1,155 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the text of the stream records ("~" console, "@" target, "&" log) in a ring buffer and prints it in chunks at a fixed cadence.
+ * A debuggee that prints a lot via gdb, or gdb with "set debug" on, produce far more lines than anyone can read--so when the buffer overruns,
+ * the oldest text is dropped, and the printer is told how much.
+ */
+public class GdbMiConsoleSink {
+    public interface Printer {
+        /// MODE is the kind of stream record ('~', '@' or '&'), TEXT is all the text of consecutive records of that kind.
+        void print(char mode, @NotNull String text);
+
+        /// COUNT characters of output were dropped because the buffer overran.
+        void dropped(long count);
+    }
+
+    private static final class Run {
+        final char myMode;
+        int myLength;
+
+        Run(char mode, int length) {
+            myMode = mode;
+            myLength = length;
+        }
+    }
+
+    private static final long ourFlushMillis = 50;
+
+    private final Printer myPrinter;
+    private final ScheduledExecutorService myScheduler;
+
+    // Guarded by this
+    private final char[] myRing;
+    private int myStart = 0;
+    private int mySize = 0;
+    // The modes of the text in myRing, in order
+    private final ArrayDeque<Run> myRuns = new ArrayDeque<>();
+    private long myDroppedCount = 0;
+    // Whether a flush is scheduled or running
+    private boolean myBusy = false;
+    private long myTotalCount = 0;
+
+    public GdbMiConsoleSink(@NotNull Printer printer, @NotNull ScheduledExecutorService scheduler, int capacity) {
+        myPrinter = printer;
+        myScheduler = scheduler;
+        myRing = new char[Math.max(capacity, 1)];
+    }
+
+    /// Called in the reader thread; doesn't block (for long).
+    public void write(char mode, @NotNull CharSequence text) {
+        int length = text.length();
+        if (length == 0) {
+            return;
+        }
+        synchronized (this) {
+            myTotalCount += length;
+            int offset = 0;
+            if (length > myRing.length) { // only the tail fits
+                offset = length - myRing.length;
+                myDroppedCount += offset;
+            }
+            dropOldest(mySize + (length - offset) - myRing.length);
+            int end = (myStart + mySize) % myRing.length;
+            for (int i = offset; i < length; ++i) {
+                myRing[end] = text.charAt(i);
+                if (++end == myRing.length) {
+                    end = 0;
+                }
+            }
+            mySize += length - offset;
+            var last = myRuns.peekLast();
+            if (last != null && last.myMode == mode) {
+                last.myLength += length - offset;
+            } else {
+                myRuns.addLast(new Run(mode, length - offset));
+            }
+            if (!myBusy) {
+                myBusy = true;
+                myScheduler.schedule(this::flush, ourFlushMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Note: Call with this locked.
+    private void dropOldest(int count) {
+        if (count <= 0) {
+            return;
+        }
+        myDroppedCount += count;
+        myStart = (myStart + count) % myRing.length;
+        mySize -= count;
+        while (count > 0) {
+            var run = myRuns.getFirst();
+            if (run.myLength > count) {
+                run.myLength -= count;
+                break;
+            }
+            count -= run.myLength;
+            myRuns.removeFirst();
+        }
+    }
+
+    private void flush() {
+        final Run[] runs;
+        final String[] texts;
+        final long droppedCount;
+        synchronized (this) {
+            runs = myRuns.toArray(new Run[0]);
+            texts = new String[runs.length];
+            for (int i = 0; i < runs.length; ++i) {
+                int length = runs[i].myLength;
+                int firstPart = Math.min(length, myRing.length - myStart);
+                var text = new StringBuilder(length);
+                text.append(myRing, myStart, firstPart);
+                text.append(myRing, 0, length - firstPart);
+                texts[i] = text.toString();
+                myStart = (myStart + length) % myRing.length;
+            }
+            mySize = 0;
+            myStart = 0;
+            myRuns.clear();
+            droppedCount = myDroppedCount;
+            myDroppedCount = 0;
+        }
+        try {
+            if (droppedCount > 0) {
+                myPrinter.dropped(droppedCount);
+            }
+            for (int i = 0; i < runs.length; ++i) {
+                myPrinter.print(runs[i].myMode, texts[i]);
+            }
+        } finally {
+            synchronized (this) {
+                if (mySize > 0 || myDroppedCount > 0) {
+                    myScheduler.schedule(this::flush, ourFlushMillis, TimeUnit.MILLISECONDS);
+                } else {
+                    myBusy = false;
+                }
+            }
+        }
+    }
+
+    /// The number of characters written so far (whether printed or dropped).
+    public synchronized long getTotalCount() {
+        return myTotalCount;
+    }
+}
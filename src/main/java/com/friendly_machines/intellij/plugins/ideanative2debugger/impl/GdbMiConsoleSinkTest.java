@@ -0,0 +1,53 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdbMiConsoleSinkTest {
+    @org.junit.jupiter.api.Test
+    void consoleSink() throws InterruptedException {
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var output = new StringBuffer();
+            var dropped = new AtomicLong();
+            var printed = new CountDownLatch(2); // two runs
+            var sink = new GdbMiConsoleSink(new GdbMiConsoleSink.Printer() {
+                @Override
+                public void print(char mode, @NotNull String text) {
+                    output.append(mode).append(text);
+                    printed.countDown();
+                }
+
+                @Override
+                public void dropped(long count) {
+                    dropped.addAndGet(count);
+                }
+            }, scheduler, 16);
+            var writing = new CountDownLatch(1);
+            scheduler.execute(() -> { // keep the sink from flushing until everything is written
+                try {
+                    writing.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            sink.write('~', "0123456789");
+            sink.write('@', "abcd");
+            sink.write('@', "efgh");
+            sink.write('&', "");
+            writing.countDown();
+            assertTrue(printed.await(10, TimeUnit.SECONDS));
+            assertEquals(2, dropped.get());
+            assertEquals("~23456789@abcdefgh", output.toString());
+            assertEquals(18, sink.getTotalCount());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
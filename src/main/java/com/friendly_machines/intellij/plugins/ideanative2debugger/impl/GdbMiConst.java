@@ -0,0 +1,39 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+/// A c-string value (already unescaped)
+public final class GdbMiConst implements GdbMiValue {
+    private final String myValue;
+
+    public GdbMiConst(@NotNull String value) {
+        myValue = value;
+    }
+
+    @NotNull
+    public String getValue() {
+        return myValue;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 16 + GdbMiValue.estimateSize(myValue);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GdbMiConst other && myValue.equals(other.myValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return myValue.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return myValue;
+    }
+}
@@ -2,25 +2,37 @@
 
 package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
 
+import com.friendly_machines.intellij.plugins.ideanative2debugger.ProjectSettingsState;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class GdbMiFilter {
+    private static final long ourResponseCacheSize = 32L * 1024 * 1024;
+
     private final DebugProcess myProcess;
     private final Project myProject;
-    private final PrintStream myChildIn;
+    private final OutputStream myChildIn;
     private final GdbOsProcessHandler myChildOut;
-    //private final InputStream myChildOut;
-    //private final GdbMiProducer myReaderThread;
+    // Commands are encoded here first, so that a whole batch of them is written at once. Guarded by myChildIn.
+    private final GdbMiCommandEncoder myEncoder = new GdbMiCommandEncoder();
+    private final GdbMiSingleFlight mySingleFlight = new GdbMiSingleFlight();
+    // Counts the times the debuggee started or stopped. The answers to queries are only valid within one such epoch.
+    private final AtomicLong myStopEpoch = new AtomicLong();
+    private final GdbMiAsyncDispatcher myAsyncDispatcher;
+    private final GdbMiConsoleSink myConsoleSink;
+    private final ThreadRegistry myThreadRegistry = new ThreadRegistry();
+    private final GdbMiResponseCache myResponseCache = new GdbMiResponseCache(ourResponseCacheSize);
 
     public GdbMiFilter(DebugProcess process, @NotNull Project project, GdbOsProcessHandler childIO) {
         myProcess = process;
@@ -29,8 +41,19 @@ public class GdbMiFilter {
         //Native2DebugProcess process = Native2DebugProcess.getInstance(myOsProcessHandler);
         myChildOut = childIO;
         // pucgenie: It is 7-bit ASCII per mi3 specification, so... use US_ASCII instead?
-        myChildIn = new PrintStream(childIO.getProcessInput(), false, StandardCharsets.UTF_8);
-        //myReaderThread = new GdbMiProducer(new BufferedReader(new InputStreamReader(childIO.getInputStream(), StandardCharsets.UTF_8), 1), process);
+        myChildIn = childIO.getMiInput();
+        myAsyncDispatcher = new GdbMiAsyncDispatcher(process::handleAsyncRecords, DebugProcess.getUiExecutor(), AppExecutorUtil.getAppScheduledExecutorService());
+        myConsoleSink = new GdbMiConsoleSink(new GdbMiConsoleSink.Printer() {
+            @Override
+            public void print(char mode, @NotNull String text) {
+                process.handleGdbTextOutput(mode, text);
+            }
+
+            @Override
+            public void dropped(long count) {
+                process.handleGdbTextDropped(count);
+            }
+        }, AppExecutorUtil.getAppScheduledExecutorService(), ProjectSettingsState.getInstance().consoleBufferKiB * 1024);
 
         // TODO: PipedReader, PipedWriter
 
@@ -38,79 +61,140 @@ public class GdbMiFilter {
         // new FileReader(FileDescriptor)
     }
 
-//    / Read the sync response from gdb. If there are async responses, those are handled as a side-effect.
-    private GdbMiStateResponse readResponse() throws InterruptedException {
-        return myChildOut.readResponse();
+    // Guarded by myChildIn, so the tokens are sent in ascending order.
+    private int requestId = 0;
+
+    public GdbMiStateResponse gdbSend(String operation, Iterable<String> options, Iterable<String> parameters) throws IOException, InterruptedException {
+//        println("gdbSend " + operation);
+        return myChildOut.readResponse(gdbSendAsync(operation, options, parameters));
     }
 
-    private int requestId = 0;
+    public long getStopEpoch() {
+        return myStopEpoch.get();
+    }
 
-    private static byte digit(byte value) {
-        return (byte) ((byte) '0' + value);
-    }
-
-    // Given TEXT, escapes it into a C string so you can use it as an GDB parameter in an output stream
-    private static void makeCString(byte[] text, OutputStream s) throws IOException {
-        s.write((byte) '"'); // quote
-        for (byte b : text) {
-            if (b == (byte) ' ') {
-                s.write((byte) ' '); // space
-            } else if (b < 32 || b < 0 || b == (byte) '\\') {
-                s.write((byte) '\\');
-                var bb = Byte.toUnsignedInt(b);
-                s.write(digit((byte) ((bb >> 6) & 7)));
-                s.write(digit((byte) ((bb >> 3) & 7)));
-                s.write(digit((byte) ((bb >> 0) & 7)));
-            } else {
-                s.write(b);
+    @NotNull
+    public ThreadRegistry getThreadRegistry() {
+        return myThreadRegistry;
+    }
+
+    @NotNull
+    public GdbMiResponseCache getResponseCache() {
+        return myResponseCache;
+    }
+
+    /**
+     * Sends a request to gdb without waiting for its response. So any number of requests can be in flight; gdb answers them in order.
+     * If the same query is still in flight (see GdbMiSingleFlight), doesn't send anything but shares its response.
+     * @return the response, once it arrives (completed exceptionally if gdb exits first).
+     */
+    @NotNull
+    public CompletableFuture<GdbMiStateResponse> gdbSendAsync(String operation, Iterable<String> options, Iterable<String> parameters) throws IOException {
+        synchronized (myChildIn) {
+            if (GdbMiSingleFlight.isQuery(operation)) {
+                return mySingleFlight.share(myStopEpoch.get(), operation, options, parameters, () -> send(operation, options, parameters));
             }
+            return send(operation, options, parameters);
         }
-        s.write((byte) '"'); // quote
     }
 
-    // Given TEXT, escapes it (if necessary) into a C string so you can use it as an GDB parameter in an input stream
-    private static void maybeEscape(byte[] text, OutputStream out) throws IOException {
-        boolean escaping_needed = false;
-        for (byte b : text) {
-            if (b <= 32 || b < 0 || b == (byte) '\\') {
-                escaping_needed = true;
-                break;
+    // Note: Call with myChildIn locked.
+    private CompletableFuture<GdbMiStateResponse> send(String operation, Iterable<String> options, Iterable<String> parameters) throws IOException {
+        myEncoder.reset();
+        var response = encode(operation, options, parameters);
+        flushCommands(List.of(response));
+        return response;
+    }
+
+    /**
+     * Sends all of COMMANDS to gdb with a single write, without waiting for the responses.
+     * @return the responses, in the order of COMMANDS (see gdbSendAsync).
+     */
+    @NotNull
+    public List<CompletableFuture<GdbMiStateResponse>> gdbBatch(@NotNull List<GdbMiCommand> commands) throws IOException {
+        synchronized (myChildIn) {
+            myEncoder.reset();
+            var responses = new ArrayList<CompletableFuture<GdbMiStateResponse>>(commands.size());
+            for (var command : commands) {
+                responses.add(encode(command.operation(), command.options(), command.parameters()));
             }
-        }
-        if (escaping_needed) {
-            makeCString(text, out);
-            return;
-        } else {
-            out.write(text);
-            return;
+            flushCommands(responses);
+            return responses;
         }
     }
 
-    public GdbMiStateResponse gdbSend(String operation, Iterable<String> options, Iterable<String> parameters) throws IOException, InterruptedException {
-//        println("gdbSend " + operation);
-        ++requestId;
-        myChildIn.print(Integer.toString(requestId));
-        myChildIn.print(operation);
-        for (String option : options) {
-            myChildIn.print(" ");
-            maybeEscape(option.getBytes(StandardCharsets.UTF_8), myChildIn);
+    // Note: Call with myChildIn locked.
+    private CompletableFuture<GdbMiStateResponse> encode(String operation, Iterable<String> options, Iterable<String> parameters) throws IOException {
+        if (operation.startsWith("-exec-")) { // the debuggee is going to run
+            myStopEpoch.incrementAndGet();
+        } else if (GdbMiResponseCache.isWrite(operation)) {
+            myResponseCache.invalidate();
         }
-        // pucgenie: Maybe just use this one iterator instead of creating a second one...
-        if (parameters.iterator().hasNext()) {
-            // mind the space being PREfixed to all following parameters
-            myChildIn.print(" --");
-            for (var parameterStr : parameters) {
-                myChildIn.print(" ");
-                maybeEscape(parameterStr.getBytes(StandardCharsets.UTF_8), myChildIn);
+        ++requestId;
+        var response = myChildOut.expectResponse(Integer.toString(requestId), GdbMiTimeoutClass.of(operation));
+        myEncoder.appendCommand(requestId, operation, options, parameters);
+        return response;
+    }
+
+    // Writes the commands encoded since myEncoder.reset; RESPONSES are theirs.
+    // Note: Call with myChildIn locked.
+    private void flushCommands(List<CompletableFuture<GdbMiStateResponse>> responses) throws IOException {
+        try {
+            myEncoder.writeTo(myChildIn);
+            myChildIn.flush();
+        } catch (IOException e) {
+            // Their tokens are the last ones
+            int token = requestId - responses.size();
+            for (var response : responses) {
+                response.cancel(false);
+                myChildOut.forgetUnsent(Integer.toString(++token));
             }
+            throw e;
+        }
+    }
+
+    public GdbMiTuple gdbCall(String operation, Iterable<String> options, Iterable<String> parameters) throws GdbMiOperationException, IOException, InterruptedException {
+        return checkResponse(gdbSend(operation, options, parameters));
+    }
+
+    /// Waits for RESPONSE (one of the results of gdbBatch) and checks it like gdbCall does.
+    public GdbMiTuple awaitCall(@NotNull CompletableFuture<GdbMiStateResponse> response) throws GdbMiOperationException, IOException, InterruptedException {
+        return checkResponse(myChildOut.readResponse(response));
+    }
+
+    /**
+     * Like gdbCall, but doesn't wait for the response.
+     * @return the attributes of the response; completed exceptionally with a GdbMiOperationException if the operation failed.
+     * Note: The result is completed by the thread that reads gdb's output--so don't wait for other responses in dependent stages that run there.
+     */
+    @NotNull
+    public CompletableFuture<GdbMiTuple> gdbCallAsync(String operation, Iterable<String> options, Iterable<String> parameters) {
+        try {
+            return checkResponseAsync(gdbSendAsync(operation, options, parameters));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        myChildIn.print("\r\n");
-        myChildIn.flush();
-        return readResponse();
     }
 
-    public Map<String, ?> gdbCall(String operation, Iterable<String> options, Iterable<String> parameters) throws GdbMiOperationException, IOException, InterruptedException {
-        var response = gdbSend(operation, options, parameters);
+    /// Checks RESPONSE like gdbCallAsync does. Cancelling the result cancels RESPONSE.
+    @NotNull
+    public static CompletableFuture<GdbMiTuple> checkResponseAsync(@NotNull CompletableFuture<GdbMiStateResponse> response) {
+        var result = response.thenApply(item -> {
+            try {
+                return checkResponse(item);
+            } catch (GdbMiOperationException e) {
+                throw new CompletionException(e);
+            }
+        });
+        result.whenComplete((item, throwable) -> {
+            if (result.isCancelled()) {
+                response.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private static GdbMiTuple checkResponse(GdbMiStateResponse response) throws GdbMiOperationException {
         if (response.getMode() != '^') {
             // pucgenie: I don't like that repacking just for adding an error message. Data is lost too (see com.friendly_machines.intellij.plugins.ideanative2debugger.impl.GdbMiStateResponse#errorResponse ).
             throw new GdbMiOperationException(GdbMiStateResponse.errorResponse(response.getToken(), response.getMode(), response.getKlass(), "Invalid response mode, expected '^'."));
@@ -126,36 +210,41 @@ public class GdbMiFilter {
         }
     }
 
-    public void startReaderThread() {
-        //myReaderThread.start();
-    }
-
-    private static char consume(Scanner scanner) {
-        return scanner.next().charAt(0);
-    }
-    public void processAsync(@Nullable Optional<String> token, @NotNull Scanner scanner) throws IOException, InterruptedException {
-        scanner.useDelimiter(""); // character by character mode
-        //Optional<String> token = parseToken(scanner);
+    /**
+     * Parses an async record right away (LEXER is only valid during the call) and hands the result to the UI thread (see GdbMiAsyncDispatcher).
+     */
+    public void processAsync(@Nullable Optional<String> token, @NotNull GdbMiLexer lexer) {
         // "+": contains on-going status information about the progress of a slow operation.
         // "*": contains asynchronous state change on the target (stopped, started, disappeared)
         // "=": contains supplementary information that the client should handle (e.g., a new breakpoint information)
         // "^": sync command result (already handled)
-        if (scanner.hasNext("[*+=]")) {
-            GdbMiStateResponse response = GdbMiStateResponse.decode(token, scanner);
-
-            // "*stopped"
-            // "=breakpoint-modified"
-            //ApplicationManager.getApplication().invokeLater(() -> {
-                myProcess.handleGdbMiStateOutput(response);
-            //});
-        } else if (scanner.hasNext("[~@&]")) { // streams
-            char mode = consume(scanner);
-            @NotNull String text = GdbMiProducer.parseCString(scanner);
-            //ApplicationManager.getApplication().invokeLater(() -> {
-                myProcess.handleGdbTextOutput(mode, text);
-            //});
-        } else if (scanner.hasNext("-")) { // our echo
-        } else {
+        switch (lexer.peek()) {
+            case '*', '+', '=' -> {
+                if (lexer.peekIs('*')) { // "*running" or "*stopped"
+                    myStopEpoch.incrementAndGet();
+                }
+                GdbMiStateResponse response = GdbMiStateResponse.decode(token, lexer);
+                // Right here, and not when the record is handled: "=thread-created" and the like are coalesced by the dispatcher.
+                try {
+                    myThreadRegistry.update(response);
+                } catch (RuntimeException e) { // ClassCastException
+                    // The record is dispatched regardless--it's what the UI (and the "*stopped" handling) goes by.
+                    DebugProcess.getUiExecutor().execute(() -> myProcess.reportError("could not update the threads from " + response.getMode() + response.getKlass(), e));
+                }
+
+                // "*stopped"
+                // "=breakpoint-modified"
+                myAsyncDispatcher.dispatch(response);
+            }
+            case '~', '@', '&' -> { // streams
+                char mode = lexer.next();
+                @NotNull String text = GdbMiProducer.parseCString(lexer);
+                myConsoleSink.write(mode, text);
+            }
+            case '-' -> { // our echo (not on a separate MI channel, which doesn't echo)
+            }
+            default -> {
+            }
         }
     }
 
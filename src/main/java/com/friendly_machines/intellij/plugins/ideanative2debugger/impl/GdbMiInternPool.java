@@ -0,0 +1,152 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Makes the Strings parsed from GDB/MI output share one instance each, as far as possible.
+ * The names of results (number, addr, fullname, ...) come from a fixed table with a perfect hash, so they are never allocated.
+ * Short values (enabled="y", thread-groups=["i1"], file names, ...) go through a bounded LRU table, one per session.
+ * Otherwise, cached frames and breakpoints would keep millions of copies of the same strings alive.
+ * Note: Lookups don't allocate. An instance is not thread-safe; it is meant for the thread that reads the output of GDB.
+ */
+public final class GdbMiInternPool {
+    // Names of results and classes of records, from the GDB/MI chapter of the GDB manual
+    private static final String[] KNOWN_KEYS = {
+            "done", "running", "connected", "error", "exit", "stopped", "breakpoint-created", "breakpoint-modified",
+            "breakpoint-deleted", "thread-created", "thread-exited", "thread-selected", "thread-group-added",
+            "thread-group-removed", "thread-group-started", "thread-group-exited", "library-unloaded", "cmd-param-changed",
+            "memory-changed", "download", "param",
+            "addr", "addr_flags", "address", "arch", "args", "asm_insns", "at", "begin", "bkpt", "bkptno", "catch-type",
+            "changed-registers", "changelist", "child", "children", "code", "cond", "contents", "core", "current-thread-id",
+            "details", "disp", "displayhint", "dynamic", "enabled", "end", "evaluated-by", "exit-code", "exp", "features",
+            "file", "fragments", "frame", "from", "fullname", "func", "func-name", "group-id", "groups", "has_more", "hits",
+            "id", "ignore", "in_scope", "inst", "installed", "line", "line_asm_insn", "level", "library-loaded", "locations",
+            "lang", "memory", "msg", "name", "new_children", "new_num_children", "new_type", "next-row", "numchild", "number",
+            "offset", "opcodes", "original-location", "pass", "pending", "pid", "reason", "register-names", "register-values",
+            "signal-meaning", "signal-name", "src_and_asm_line", "stack", "state", "stopped-threads", "symbols-loaded", "target-id",
+            "task", "thread", "thread-group", "thread-groups", "thread-id", "threads", "times", "to", "type", "type_changed",
+            "value", "variables", "what", "exists", "command", "host-name", "shlib-info", "ranges", "language", "format",
+            "attr", "editable", "thread-group-id", "selected", "depth",
+    };
+
+    private static final String[] ourKeyTable;
+    private static final int ourKeySeed;
+
+    static {
+        // Find a seed (and table size) such that the known keys don't collide.
+        int size = Integer.highestOneBit(KNOWN_KEYS.length * 8);
+        int seed = 0;
+        String[] table;
+        search:
+        while (true) {
+            for (int attempt = 0; attempt < 10000; ++attempt) {
+                seed = 0x811c9dc5 + attempt * 0x9e3779b9;
+                table = new String[size];
+                boolean collision = false;
+                for (var key : KNOWN_KEYS) {
+                    int slot = slot(hash(seed, key, 0, key.length()), size - 1);
+                    if (table[slot] != null && !table[slot].equals(key)) {
+                        collision = true;
+                        break;
+                    }
+                    table[slot] = key;
+                }
+                if (!collision) {
+                    break search;
+                }
+            }
+            size *= 2;
+        }
+        ourKeyTable = table;
+        ourKeySeed = seed;
+    }
+
+    // FNV-1a
+    private static int hash(int seed, @NotNull CharSequence text, int start, int end) {
+        int h = seed;
+        for (int i = start; i < end; ++i) {
+            h = (h ^ text.charAt(i)) * 0x01000193;
+        }
+        return h;
+    }
+
+    private static int slot(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean contentEquals(@NotNull String s, @NotNull CharSequence text, int start, int end) {
+        if (s.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; ++i) {
+            if (s.charAt(i - start) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /// Returns the known key that consists of the characters between START and END of TEXT, or null if there is none.
+    @Nullable
+    public static String lookUpKey(@NotNull CharSequence text, int start, int end) {
+        var key = ourKeyTable[slot(hash(ourKeySeed, text, start, end), ourKeyTable.length - 1)];
+        return key != null && contentEquals(key, text, start, end) ? key : null;
+    }
+
+    /// Longer values are rarely repeated (and rather expensive to compare).
+    public static final int MAX_VALUE_LENGTH = 256;
+
+    // The table is split into sets of WAYS entries each. A value can only be in the set its hash selects.
+    // Within a set, entries are ordered from most to least recently used; a new value evicts the last one.
+    private static final int WAYS = 4;
+    private final String[] myEntries;
+    private final int mySetMask;
+
+    /// CAPACITY is rounded up to a power of two.
+    public GdbMiInternPool(int capacity) {
+        int setCount = Integer.highestOneBit(Math.max(1, capacity / WAYS - 1) * 2 - 1);
+        myEntries = new String[setCount * WAYS];
+        mySetMask = setCount - 1;
+    }
+
+    /// Returns the text between START and END of the record, sharing a previous instance if possible.
+    @NotNull
+    public String intern(@NotNull GdbMiLexer lexer, int start, int end) {
+        final int length = end - start;
+        if (length == 0) {
+            return "";
+        }
+        final var text = lexer.getText();
+        if (length > MAX_VALUE_LENGTH) {
+            return lexer.decode(start, end);
+        }
+        int h = 0x811c9dc5;
+        for (int i = start; i < end; ++i) {
+            char c = text.charAt(i);
+            if (c >= 0x80) { // raw bytes that still need to be decoded
+                return lexer.decode(start, end);
+            }
+            h = (h ^ c) * 0x01000193;
+        }
+        final var entries = myEntries;
+        final int base = slot(h, mySetMask) * WAYS;
+        for (int way = 0; way < WAYS; ++way) {
+            var entry = entries[base + way];
+            if (entry == null) {
+                break;
+            }
+            if (contentEquals(entry, text, start, end)) {
+                System.arraycopy(entries, base, entries, base + 1, way);
+                entries[base] = entry;
+                return entry;
+            }
+        }
+        var result = lexer.decode(start, end);
+        System.arraycopy(entries, base, entries, base + 1, WAYS - 1);
+        entries[base] = result;
+        return result;
+    }
+}
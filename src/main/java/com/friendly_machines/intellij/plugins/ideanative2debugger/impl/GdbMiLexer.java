@@ -0,0 +1,276 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+
+/**
+ * Cursor over one GDB/MI output record.
+ * Unlike a Scanner in character-by-character mode, this neither matches regular expressions nor allocates anything per character.
+ * The record can either be text or raw MI bytes (see GdbMiByteSequence); a lexer can be reset and reused for the next record.
+ */
+public class GdbMiLexer {
+    /** Returned by peek() when there is no more input */
+    public static final char EOF = (char) -1;
+
+    private CharSequence myText;
+    private int myEnd;
+    private int myPosition;
+    private boolean myRawBytes;
+    @Nullable
+    private GdbMiInternPool myInternPool;
+
+    // Scratch space for c-strings with escapes. Escapes denote bytes, so the string is assembled as UTF-8 and decoded once at the end.
+    private byte[] myBytes = new byte[128];
+    private int myByteCount;
+
+    // Scratch stack for the items of the tuples and lists that are being parsed (the innermost one on top).
+    // When one is complete, its items are copied into arrays of the exact size.
+    // A value is either a GdbMiValue or, for a c-string, just the String--so that columnar lists don't need a GdbMiConst per field.
+    private String[] myItemNames = new String[16];
+    private Object[] myItemValues = new Object[16];
+    private int myItemCount;
+
+    public GdbMiLexer(@NotNull CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    public GdbMiLexer(@NotNull CharSequence text, int start, int end) {
+        reset(text, start, end);
+    }
+
+    @NotNull
+    public GdbMiLexer reset(@NotNull CharSequence text, int start, int end) {
+        myText = text;
+        myPosition = start;
+        myEnd = end;
+        myRawBytes = text instanceof GdbMiByteSequence;
+        dropItems(0); // in case the previous record was malformed
+        return this;
+    }
+
+    @NotNull
+    public GdbMiLexer reset(@NotNull CharSequence text) {
+        return reset(text, 0, text.length());
+    }
+
+    /// Makes decodeShared share the strings it returns via POOL (per session)
+    @NotNull
+    public GdbMiLexer setInternPool(@Nullable GdbMiInternPool pool) {
+        myInternPool = pool;
+        return this;
+    }
+
+    @NotNull
+    public CharSequence getText() {
+        return myText;
+    }
+
+    public int getPosition() {
+        return myPosition;
+    }
+
+    public void setPosition(int position) {
+        myPosition = position;
+    }
+
+    public int getEnd() {
+        return myEnd;
+    }
+
+    public boolean hasNext() {
+        return myPosition < myEnd;
+    }
+
+    public char peek() {
+        return myPosition < myEnd ? myText.charAt(myPosition) : EOF;
+    }
+
+    public boolean peekIs(char c) {
+        return myPosition < myEnd && myText.charAt(myPosition) == c;
+    }
+
+    // Consume one character and give that one back
+    public char next() {
+        if (myPosition >= myEnd) {
+            throw new InputMismatchException("unexpected end of GDB/MI record");
+        }
+        return myText.charAt(myPosition++);
+    }
+
+    /// Consumes C if it is next; returns whether it was.
+    public boolean skip(char c) {
+        if (peekIs(c)) {
+            ++myPosition;
+            return true;
+        }
+        return false;
+    }
+
+    public void expect(char c) {
+        if (!skip(c)) {
+            throw new InputMismatchException("expected '" + c + "' at offset " + myPosition + " but got " + (hasNext() ? "'" + peek() + "'" : "end of record"));
+        }
+    }
+
+    /// Returns the text between START and END (usually a part of the record that was just skipped over).
+    @NotNull
+    public String decode(int start, int end) {
+        if (myRawBytes) {
+            return ((GdbMiByteSequence) myText).decode(start, end);
+        } else {
+            return myText.subSequence(start, end).toString();
+        }
+    }
+
+    /// Like decode, but for text that is likely to occur again (keys, short values): if possible, returns an instance that is shared with earlier records.
+    @NotNull
+    public String decodeShared(int start, int end) {
+        return myInternPool != null ? myInternPool.intern(this, start, end) : decode(start, end);
+    }
+
+    /// Returns the name of a result (see decodeShared).
+    @NotNull
+    public String decodeKey(int start, int end) {
+        var key = GdbMiInternPool.lookUpKey(myText, start, end);
+        return key != null ? key : decodeShared(start, end);
+    }
+
+    /// Returns a copy of the text between START and END that stays valid after the lexer (or the buffer it reads) is reused.
+    @NotNull
+    public CharSequence copyText(int start, int end) {
+        if (myRawBytes) {
+            return ((GdbMiByteSequence) myText).copy(start, end);
+        } else {
+            return myText.subSequence(start, end).toString();
+        }
+    }
+
+    /// Returns the remainder of the record as text, consuming it.
+    @NotNull
+    public String decodeRest() {
+        var result = decode(myPosition, myEnd);
+        myPosition = myEnd;
+        return result;
+    }
+
+    void beginBytes() {
+        myByteCount = 0;
+    }
+
+    void appendByte(int b) {
+        if (myByteCount == myBytes.length) {
+            myBytes = Arrays.copyOf(myBytes, myBytes.length * 2);
+        }
+        myBytes[myByteCount++] = (byte) b;
+    }
+
+    void appendCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            appendByte(codePoint);
+        } else if (codePoint < 0x800) {
+            appendByte(0xC0 | (codePoint >> 6));
+            appendByte(0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            appendByte(0xE0 | (codePoint >> 12));
+            appendByte(0x80 | ((codePoint >> 6) & 0x3F));
+            appendByte(0x80 | (codePoint & 0x3F));
+        } else {
+            appendByte(0xF0 | ((codePoint >> 18) & 0x07));
+            appendByte(0x80 | ((codePoint >> 12) & 0x3F));
+            appendByte(0x80 | ((codePoint >> 6) & 0x3F));
+            appendByte(0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    /// Appends the characters between START and END of the record to the scratch bytes.
+    void appendText(int start, int end) {
+        final var text = myText;
+        for (int i = start; i < end; ++i) {
+            char c = text.charAt(i);
+            if (myRawBytes || c < 0x80) {
+                appendByte(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                appendCodePoint(Character.toCodePoint(c, text.charAt(i + 1)));
+                ++i;
+            } else {
+                appendCodePoint(c);
+            }
+        }
+    }
+
+    @NotNull
+    String takeBytesAsString() {
+        return new String(myBytes, 0, myByteCount, StandardCharsets.UTF_8);
+    }
+
+    /// Returns the mark to pass to the other item functions once the container is complete.
+    int getItemCount() {
+        return myItemCount;
+    }
+
+    void pushItem(@Nullable String name, @NotNull Object value) {
+        if (myItemCount == myItemValues.length) {
+            myItemNames = Arrays.copyOf(myItemNames, myItemCount * 2);
+            myItemValues = Arrays.copyOf(myItemValues, myItemCount * 2);
+        }
+        myItemNames[myItemCount] = name;
+        myItemValues[myItemCount] = value;
+        ++myItemCount;
+    }
+
+    @Nullable
+    String getItemName(int index) {
+        return myItemNames[index];
+    }
+
+    /// Returns either a GdbMiValue or a String
+    @NotNull
+    Object getItemValue(int index) {
+        return myItemValues[index];
+    }
+
+    @NotNull
+    String[] copyItemNames(int start, int end) {
+        return Arrays.copyOfRange(myItemNames, start, end);
+    }
+
+    @NotNull
+    GdbMiValue[] copyItemValues(int start, int end) {
+        var result = new GdbMiValue[end - start];
+        for (int i = start; i < end; ++i) {
+            var value = myItemValues[i];
+            result[i - start] = value instanceof String s ? new GdbMiConst(s) : (GdbMiValue) value;
+        }
+        return result;
+    }
+
+    void dropItems(int mark) {
+        // Don't keep the values alive
+        Arrays.fill(myItemNames, mark, myItemCount, null);
+        Arrays.fill(myItemValues, mark, myItemCount, null);
+        myItemCount = mark;
+    }
+
+    public static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    public static boolean isSymbolStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '-';
+    }
+
+    public static boolean isSymbolPart(char c) {
+        return isSymbolStart(c) || isDigit(c);
+    }
+
+    @Override
+    public String toString() {
+        return "GdbMiLexer{" + decode(myPosition, myEnd) + "}";
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits the raw output of GDB into lines without decoding it.
+ * The buffer is reused for all lines; it only grows if a single line does not fit into it.
+ */
+public class GdbMiLineReader {
+    public interface LineHandler {
+        /// Note: The bytes between START and END (without line terminator) are only valid during the call.
+        void handleLine(byte @NotNull [] buffer, int start, int end) throws IOException;
+    }
+
+    private final InputStream myInput;
+    private byte[] myBuffer;
+    // Bytes between 0 and myFill are valid. A line that started before myFill did not end yet.
+    private int myFill = 0;
+
+    public GdbMiLineReader(@NotNull InputStream input, int initialCapacity) {
+        myInput = input;
+        myBuffer = new byte[initialCapacity];
+    }
+
+    public GdbMiLineReader(@NotNull InputStream input) {
+        this(input, 64 * 1024);
+    }
+
+    /**
+     * Reads whatever is available (blocking if nothing is) and passes each complete line to HANDLER.
+     * @return false on end of stream.
+     */
+    public boolean readOnce(@NotNull LineHandler handler) throws IOException {
+        if (myFill == myBuffer.length) { // a very long line
+            myBuffer = Arrays.copyOf(myBuffer, myBuffer.length * 2);
+        }
+        int scanStart = myFill;
+        int count = myInput.read(myBuffer, myFill, myBuffer.length - myFill);
+        if (count < 0) {
+            if (myFill > 0) { // last line without terminator
+                handler.handleLine(myBuffer, 0, myFill);
+                myFill = 0;
+            }
+            return false;
+        }
+        myFill += count;
+
+        final var buffer = myBuffer;
+        int lineStart = 0;
+        for (int i = scanStart; i < myFill; ++i) {
+            if (buffer[i] == '\n') {
+                int lineEnd = i;
+                if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+                    --lineEnd;
+                }
+                handler.handleLine(buffer, lineStart, lineEnd);
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart > 0) {
+            // Move the incomplete rest to the front.
+            System.arraycopy(buffer, lineStart, buffer, 0, myFill - lineStart);
+            myFill -= lineStart;
+        }
+        return true;
+    }
+
+    /// Reads lines until the end of the stream.
+    public void run(@NotNull LineHandler handler) throws IOException {
+        while (readOnce(handler)) {
+        }
+    }
+
+    public void close() throws IOException {
+        myInput.close();
+    }
+}
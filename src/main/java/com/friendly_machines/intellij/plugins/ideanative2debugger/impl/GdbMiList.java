@@ -0,0 +1,154 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * list ==> "[]" | "[" value ( "," value )* "]"
+ * See GdbMiResultList for lists of "name=value" results. Iterating over one of those gives the values.
+ * Long lists of similar tuples are stored by column (see GdbMiColumns). Use getRow() to read those without making a tuple per row.
+ */
+public sealed class GdbMiList implements GdbMiValue, Iterable<GdbMiValue> permits GdbMiResultList {
+    public static final GdbMiList EMPTY = new GdbMiList(new GdbMiValue[0]);
+
+    // Exactly one of those is set
+    private final GdbMiValue @Nullable [] myValues;
+    @Nullable
+    private final GdbMiColumns myColumns;
+
+    /// Note: Takes ownership of the array.
+    public GdbMiList(@NotNull GdbMiValue @NotNull [] values) {
+        myValues = values;
+        myColumns = null;
+    }
+
+    GdbMiList(@NotNull GdbMiColumns columns) {
+        myValues = null;
+        myColumns = columns;
+    }
+
+    public int size() {
+        return myColumns != null ? myColumns.size() : myValues.length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public long estimateSize() {
+        if (myColumns != null) {
+            return 32 + myColumns.estimateSize();
+        }
+        long result = 32 + 8L * myValues.length;
+        for (var value : myValues) {
+            result += value.estimateSize();
+        }
+        return result;
+    }
+
+    public boolean isColumnar() {
+        return myColumns != null;
+    }
+
+    /// Note: For a columnar list, this makes a new tuple every time.
+    @NotNull
+    public GdbMiValue get(int index) {
+        return myColumns != null ? myColumns.getTuple(index) : myValues[index];
+    }
+
+    @NotNull
+    public String getString(int index) throws ClassCastException {
+        return ((GdbMiConst) get(index)).getValue();
+    }
+
+    @NotNull
+    public GdbMiTuple getTuple(int index) throws ClassCastException {
+        return (GdbMiTuple) get(index);
+    }
+
+    @NotNull
+    public GdbMiList getList(int index) throws ClassCastException {
+        return (GdbMiList) get(index);
+    }
+
+    /// Returns the tuple at INDEX. For a columnar list, that is a view that does not copy anything.
+    @NotNull
+    public GdbMiResults getRow(int index) throws ClassCastException {
+        return myColumns != null ? myColumns.getRow(index) : (GdbMiTuple) myValues[index];
+    }
+
+    /// For lists like features=["frozen-varobjs","pending-breakpoints"]
+    @NotNull
+    public List<String> toStringList() throws ClassCastException {
+        final int size = size();
+        var result = new ArrayList<String>(size);
+        for (int i = 0; i < size; ++i) {
+            result.add(getString(i));
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<GdbMiValue> iterator() {
+        return new Iterator<>() {
+            private int myIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return myIndex < size();
+            }
+
+            @Override
+            public GdbMiValue next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(myIndex++);
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof GdbMiList other) || getClass() != other.getClass() || size() != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < size(); ++i) {
+            if (!get(i).equals(other.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size(); ++i) {
+            result = 31 * result + get(i).hashCode();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        var result = new StringBuilder("[");
+        for (int i = 0; i < size(); ++i) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(get(i));
+        }
+        result.append(']');
+        return result.toString();
+    }
+}
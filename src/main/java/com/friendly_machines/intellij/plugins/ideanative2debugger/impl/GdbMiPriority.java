@@ -0,0 +1,22 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Which requests GdbMiScheduler sends to gdb first (in the order of declaration).
+ */
+public enum GdbMiPriority {
+    /// Step, resume, pause and so on--the user waits for these.
+    EXECUTION_CONTROL,
+    /// Data that is shown right now.
+    VISIBLE,
+    /// Data that will probably be shown soon.
+    PREFETCH;
+
+    @NotNull
+    public static GdbMiPriority of(@NotNull String operation) {
+        return operation.startsWith("-exec-") ? EXECUTION_CONTROL : VISIBLE;
+    }
+}
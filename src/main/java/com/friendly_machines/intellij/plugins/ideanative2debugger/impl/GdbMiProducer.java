@@ -3,198 +3,263 @@
 package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
- * This reads async and sync responses from a pty input stream.
- * It sends each async responses to the application main thread via invokeLater.
- * It fills the sync response into a blocking queue.
+ * This parses async and sync responses from gdb's output.
+ * It completes the future of the request a sync response belongs to, by the token of the response.
+ * So any number of requests can be in flight at the same time.
+ * A request that is not answered in time fails--but gdb keeps running, and the late answer is dropped.
  */
-public class GdbMiProducer /*extends Thread*/ {
-    //    private final BufferedReader myChildOut;
-    private final BlockingQueue<GdbMiStateResponse> myQueue = new LinkedBlockingDeque<>(1);
+public class GdbMiProducer {
+    private final ConcurrentHashMap<String, CompletableFuture<GdbMiStateResponse>> myPendingResponses = new ConcurrentHashMap<>();
+    // Requests that were cancelled or timed out. Their answers can still arrive.
+    private final Set<String> myAbandonedTokens = ConcurrentHashMap.newKeySet();
+    @Nullable
+    private final ScheduledExecutorService myScheduler;
+    // When gdb last reported progress of a slow operation ("+" record)
+    private volatile long myLastProgressNanos = Long.MIN_VALUE;
 
-    // Both requests and responses have an optional "id" token in front (a numeral) which can be used to find the corresponding request to a response. Maybe use those.
+    /// @param timeoutNanos negative for none
+    private record Sent(@NotNull String token, @NotNull CompletableFuture<GdbMiStateResponse> response, long timeoutNanos) {
+    }
+
+    // The requests that gdb has not answered yet, in the order they were sent--which is the order gdb answers them in. Guarded by itself.
+    // Only the first one's timeout runs: the others wait behind it in gdb (a query behind a symbol load could otherwise time out long before gdb got to it).
+    // Cancelled requests stay until their answer arrives, since gdb is still busy with them.
+    private final LinkedHashMap<String, Sent> mySent = new LinkedHashMap<>();
+    // Whether the first request timed out, and gdb didn't send a result record since: then it's still busy with that one,
+    // and the next one's timeout only starts once it's done (otherwise one stuck command would make all the others time out in turn). Guarded by mySent.
+    private boolean myHeadTimedOut = false;
+
+    // Both requests and responses have an optional "id" token in front (a numeral) which is used to find the corresponding request to a response.
     // But async outputs, so those starting with one of "*+=", will not have them.
-    public static Optional<String> parseToken(@NotNull Scanner scanner) {
-        final var result = new StringBuilder();
-        while (scanner.hasNext("[0-9]")) {
-            char c = consume(scanner);
-            result.append(c);
+    public static Optional<String> parseToken(@NotNull GdbMiLexer lexer) {
+        final int start = lexer.getPosition();
+        while (GdbMiLexer.isDigit(lexer.peek())) {
+            lexer.next();
         }
-        if (result.isEmpty()) {
+        if (lexer.getPosition() == start) {
             return Optional.empty();
         }
-        return Optional.of(result.toString());
+        return Optional.of(lexer.decode(start, lexer.getPosition()));
     }
 
-    // Consume one character and give that one back
-    private static char consume(Scanner scanner) {
-        return scanner.next().charAt(0);
+    private static int digitValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        } else {
+            return Integer.MAX_VALUE;
+        }
     }
 
-    private final static String digits = "01234567";
-
-    @NotNull
-    private static String parseDigitsIntoCode(Scanner scanner, int radix, int maxLength) {
+    private static int parseDigitsIntoCode(@NotNull GdbMiLexer lexer, int radix, int maxLength) {
         int result = 0;
         // pucgenie: xP
         while (maxLength --> 0) {
-            char c = consume(scanner);
-            int digit = digits.indexOf(c);
-            if (digit == -1 || digit >= radix) { // error
+            int digit = digitValue(lexer.peek());
+            if (digit >= radix) { // end of the number
                 break;
             }
+            lexer.next();
             result *= radix;
             result += digit;
         }
-        return Character.toString(result);
+        return result;
     }
 
-    // Modifies RESULT.
-    private static void interpretEscapeSequenceBody(@NotNull Scanner scanner, @NotNull Appendable result) throws IOException {
-        if (scanner.hasNext("[0-7]")) {
-            result.append(parseDigitsIntoCode(scanner, 8, 3));
+    // Appends the bytes the escape sequence stands for to the lexer's scratch bytes.
+    private static void interpretEscapeSequenceBody(@NotNull GdbMiLexer lexer) {
+        if (digitValue(lexer.peek()) < 8) {
+            lexer.appendByte(parseDigitsIntoCode(lexer, 8, 3));
         } else {
-            final char c = consume(scanner);
+            final char c = lexer.next();
             switch (c) {
-                case 'a' -> result.append((char) 0x7);
-                case 'b' -> result.append((char) 0x8);
-                case 'f' -> result.append((char) 0xc);
-                case 'n' -> result.append((char) 0xa);
-                case 'r' -> result.append((char) 0xd);
-                case 't' -> result.append((char) 0x9);
-                case 'v' -> result.append((char) 0xb);
-                case 'x' -> result.append(parseDigitsIntoCode(scanner, 16, 2));
-                case 'u' -> result.append(parseDigitsIntoCode(scanner, 16, 4));
-                case 'U' -> result.append(parseDigitsIntoCode(scanner, 16, 8));
-                default -> result.append(c);
+                case 'a' -> lexer.appendByte(0x7);
+                case 'b' -> lexer.appendByte(0x8);
+                case 'f' -> lexer.appendByte(0xc);
+                case 'n' -> lexer.appendByte(0xa);
+                case 'r' -> lexer.appendByte(0xd);
+                case 't' -> lexer.appendByte(0x9);
+                case 'v' -> lexer.appendByte(0xb);
+                case 'x' -> lexer.appendByte(parseDigitsIntoCode(lexer, 16, 2));
+                case 'u' -> lexer.appendCodePoint(parseDigitsIntoCode(lexer, 16, 4));
+                case 'U' -> lexer.appendCodePoint(parseDigitsIntoCode(lexer, 16, 8));
+                default -> lexer.appendText(lexer.getPosition() - 1, lexer.getPosition());
             }
         }
     }
 
+    /**
+     * Parses a c-string.
+     * Octal and hex escapes denote bytes (GDB escapes non-printable bytes of the target's strings that way), so the result is decoded as UTF-8.
+     */
     @NotNull
-    public static String parseCString(@NotNull Scanner scanner) {
-        StringBuilder result = new StringBuilder();
-        scanner.next("\"");
-        try {
-            while (scanner.hasNext()) {
-                if (scanner.hasNext("\\\\")) { // backslash
-                    scanner.next();
-                    interpretEscapeSequenceBody(scanner, result);
-                } else if (scanner.hasNext("\"")) {
-                    break;
-                } else {
-                    char c = consume(scanner);
-                    result.append(c);
+    public static String parseCString(@NotNull GdbMiLexer lexer) {
+        lexer.expect('"');
+        final var text = lexer.getText();
+        final int start = lexer.getPosition();
+        final int end = lexer.getEnd();
+        // Fast path: most strings contain no escapes at all, so just cut them out of the record.
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                lexer.setPosition(i + 1);
+                return lexer.decodeShared(start, i);
+            } else if (c == '\\') {
+                break;
+            }
+            ++i;
+        }
+        lexer.setPosition(i);
+        lexer.beginBytes();
+        lexer.appendText(start, i);
+        while (true) {
+            final int runStart = lexer.getPosition();
+            char c = lexer.next();
+            if (c == '"') {
+                break;
+            } else if (c == '\\') {
+                interpretEscapeSequenceBody(lexer);
+            } else {
+                // Copy the whole run up to the next special character at once
+                while (lexer.hasNext() && lexer.peek() != '"' && lexer.peek() != '\\') {
+                    lexer.next();
                 }
+                lexer.appendText(runStart, lexer.getPosition());
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
-//        if (escape) {
-//
-//        }
-        scanner.next("\"");
-        return result.toString();
+        return lexer.takeBytesAsString();
     }
 
-
     // Not specified in GDB manual
     @NotNull
-    public static String parseSymbol(@NotNull Scanner scanner) {
-        var prefix = scanner.next("[a-zA-Z_-]");
-        final var result = new StringBuilder();
-        result.append(prefix);
-
-        while (scanner.hasNext("[a-zA-Z0-9_-]")) {
-            char c = consume(scanner);
-            result.append(c);
+    public static String parseSymbol(@NotNull GdbMiLexer lexer) {
+        final int start = lexer.getPosition();
+        if (!GdbMiLexer.isSymbolStart(lexer.peek())) {
+            throw new InputMismatchException("expected a symbol at offset " + start);
+        }
+        lexer.next();
+        while (GdbMiLexer.isSymbolPart(lexer.peek())) {
+            lexer.next();
         }
-        return result.toString();
+        return lexer.decodeKey(start, lexer.getPosition());
     }
 
     @NotNull
-    public static String parseKlass(Scanner scanner) {
-        return parseSymbol(scanner);
+    public static String parseKlass(@NotNull GdbMiLexer lexer) {
+        return parseSymbol(lexer);
     }
 
-    @NotNull
-    private static Map<String, ?> parseTuple(@NotNull Scanner scanner) {
-        scanner.next("\\{");
-        var result = new java.util.HashMap<String, Object>();
-        while (scanner.hasNext()) {
-            if (scanner.hasNext("}")) {
-                break;
-            }
-            var name = parseSymbol(scanner);
-            scanner.next("=");
-            var value = parseValue(scanner);
-            result.put(name, value);
-            if (scanner.hasNext(",")) {
-                scanner.next();
-            } else {
-                break;
-            }
-        }
-        scanner.next("}");
-        return result;
+    /// Parses "name=value" items up to (but not including) a character that is not ','. Pushes them to the lexer's item stack.
+    private static void parseResults(@NotNull GdbMiLexer lexer) {
+        do {
+            var name = parseSymbol(lexer);
+            lexer.expect('=');
+            // c-strings are pushed as they are; see GdbMiLexer.copyItemValues
+            lexer.pushItem(name, lexer.peekIs('"') ? parseCString(lexer) : parseValue(lexer));
+        } while (lexer.skip(','));
     }
 
     @NotNull
-    private static List<Map.Entry<String, ?>> parseKeyValueList(@NotNull Scanner scanner) {
-        final var result = new ArrayList<Map.Entry<String, ?>>();
-        while (scanner.hasNext() && !scanner.hasNext("]")) {
-            var name = parseSymbol(scanner);
-            scanner.next("=");
-            var value = parseValue(scanner);
-            result.add(new AbstractMap.SimpleEntry<>(name, value));
-            if (scanner.hasNext(",")) {
-                scanner.next();
-            } else {
-                break;
-            }
+    private static GdbMiTuple parseTuple(@NotNull GdbMiLexer lexer) {
+        lexer.expect('{');
+        if (lexer.skip('}')) {
+            return GdbMiTuple.EMPTY;
         }
-        scanner.next("]");
+        final int mark = lexer.getItemCount();
+        parseResults(lexer);
+        lexer.expect('}');
+        var result = new GdbMiTuple(lexer.copyItemNames(mark, lexer.getItemCount()), lexer.copyItemValues(mark, lexer.getItemCount()));
+        lexer.dropItems(mark);
         return result;
     }
 
+    /**
+     * Parses the items of a list, each of which is "name=value" if RESULTS, otherwise just "value".
+     * The fields of items that are tuples are not made into a GdbMiTuple right away. Instead, they stay on the lexer's item stack until the end of the list.
+     * Then, if all of them are similar, they are stored by column (see GdbMiColumns).
+     */
     @NotNull
-    private static List<?> parsePrimitiveList(@NotNull Scanner scanner) {
-        var result = new java.util.ArrayList<Object>();
-        while (scanner.hasNext() && !scanner.hasNext("]")) {
-            var value = parseValue(scanner);
-            result.add(value);
-            if (scanner.hasNext(",")) {
-                scanner.next();
-            } else {
-                break;
+    private static GdbMiList parseListItems(@NotNull GdbMiLexer lexer, boolean results) {
+        final int mark = lexer.getItemCount();
+        var itemNames = results ? new String[16] : null;
+        // Row i are the items between rowBounds[i] and rowBounds[i + 1] on the item stack
+        var rowBounds = new int[17];
+        int rowCount = 0;
+        do {
+            if (rowCount + 1 == rowBounds.length) {
+                rowBounds = Arrays.copyOf(rowBounds, 2 * rowCount + 1);
+                if (itemNames != null) {
+                    itemNames = Arrays.copyOf(itemNames, 2 * rowCount);
+                }
+            }
+            if (itemNames != null) {
+                itemNames[rowCount] = parseSymbol(lexer);
+                lexer.expect('=');
+            }
+            rowBounds[rowCount] = lexer.getItemCount();
+            if (lexer.skip('{')) {
+                if (!lexer.peekIs('}')) {
+                    parseResults(lexer);
+                }
+                lexer.expect('}');
+            } else { // a single item without name
+                lexer.pushItem(null, lexer.peekIs('"') ? parseCString(lexer) : parseValue(lexer));
+            }
+            ++rowCount;
+        } while (lexer.skip(','));
+        lexer.expect(']');
+        rowBounds[rowCount] = lexer.getItemCount();
+
+        final GdbMiList result;
+        var columns = GdbMiColumns.create(lexer, rowBounds, rowCount);
+        if (columns != null) {
+            result = itemNames != null ? new GdbMiResultList(Arrays.copyOf(itemNames, rowCount), columns) : new GdbMiList(columns);
+        } else {
+            var values = new GdbMiValue[rowCount];
+            for (int row = 0; row < rowCount; ++row) {
+                final int start = rowBounds[row];
+                final int end = rowBounds[row + 1];
+                if (end - start == 1 && lexer.getItemName(start) == null) { // not a tuple
+                    values[row] = lexer.copyItemValues(start, end)[0];
+                } else if (start == end) {
+                    values[row] = GdbMiTuple.EMPTY;
+                } else {
+                    values[row] = new GdbMiTuple(lexer.copyItemNames(start, end), lexer.copyItemValues(start, end));
+                }
             }
+            result = itemNames != null ? new GdbMiResultList(Arrays.copyOf(itemNames, rowCount), values) : new GdbMiList(values);
         }
-        scanner.next("]");
+        lexer.dropItems(mark);
         return result;
     }
 
     @NotNull
-    private static List<?> parseList(@NotNull Scanner scanner) {
-        scanner.next("\\[");
-        if (scanner.hasNext("]")) {
-            scanner.next("]");
-            return new java.util.ArrayList<>();
-        } else if (scanner.hasNext("[a-zA-Z_-]")) { // name=value
-            return parseKeyValueList(scanner);
+    private static GdbMiList parseList(@NotNull GdbMiLexer lexer) {
+        lexer.expect('[');
+        if (lexer.skip(']')) {
+            return GdbMiList.EMPTY;
+        } else if (GdbMiLexer.isSymbolStart(lexer.peek())) { // name=value
+            return parseListItems(lexer, true);
         } else { // list of "value"s, not of "name=value"s
-            return parsePrimitiveList(scanner);
+            return parseListItems(lexer, false);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public static <X> @NotNull X parseValue(@NotNull Scanner scanner) {
+    @NotNull
+    public static GdbMiValue parseValue(@NotNull GdbMiLexer lexer) {
         /* c-string | tuple | list
         tuple ==> "{}" | "{" result ( "," result )* "}"
         list ==> "[]"
@@ -203,26 +268,226 @@ public class GdbMiProducer /*extends Thread*/ {
         result ==> variable "=" value
         value ==> const | tuple | list
         */
-        if (scanner.hasNext("\\{")) {
-            return (X) parseTuple(scanner);
-        } else if (scanner.hasNext("\\[")) {
-            return (X) parseList(scanner);
-        } else {
-            return (X) parseCString(scanner);
+        return switch (lexer.peek()) {
+            case '{' -> parseTuple(lexer);
+            case '[' -> parseList(lexer);
+            default -> new GdbMiConst(parseCString(lexer));
+        };
+    }
+
+    private static void skipCString(@NotNull GdbMiLexer lexer) {
+        lexer.expect('"');
+        while (true) {
+            char c = lexer.next();
+            if (c == '"') {
+                break;
+            } else if (c == '\\') {
+                lexer.next();
+            }
+        }
+    }
+
+    /// Skips over a value without decoding anything. Only brackets and quotes are matched, so errors inside it only show up once it is parsed.
+    public static void skipValue(@NotNull GdbMiLexer lexer) {
+        if (lexer.peekIs('"')) {
+            skipCString(lexer);
+            return;
+        }
+        int depth = 0;
+        do {
+            switch (lexer.peek()) {
+                case '"' -> {
+                    skipCString(lexer);
+                    continue;
+                }
+                case '{', '[' -> ++depth;
+                case '}', ']' -> --depth;
+                case GdbMiLexer.EOF -> throw new InputMismatchException("unexpected end of GDB/MI record");
+                default -> {
+                }
+            }
+            lexer.next();
+        } while (depth > 0);
+    }
+
+    /**
+     * Like parseRecordResults, but only skims over the values and remembers where they are.
+     * Each one is parsed the first time it is accessed (see GdbMiTuple).
+     * Note: This keeps a copy of the record text.
+     */
+    @NotNull
+    public static GdbMiTuple skimRecordResults(@NotNull GdbMiLexer lexer) {
+        if (!lexer.skip(',')) {
+            return GdbMiTuple.EMPTY;
+        }
+        final int base = lexer.getPosition();
+        var names = new String[8];
+        var valueBounds = new int[2 * names.length];
+        int count = 0;
+        do {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, 2 * count);
+                valueBounds = Arrays.copyOf(valueBounds, 4 * count);
+            }
+            names[count] = parseSymbol(lexer);
+            lexer.expect('=');
+            valueBounds[2 * count] = lexer.getPosition() - base;
+            skipValue(lexer);
+            valueBounds[2 * count + 1] = lexer.getPosition() - base;
+            ++count;
+        } while (lexer.skip(','));
+        var text = lexer.copyText(base, lexer.getPosition());
+        return new GdbMiTuple(Arrays.copyOf(names, count), text, Arrays.copyOf(valueBounds, 2 * count));
+    }
+
+    /// Parses the results of a whole record, that is ( "," result )*
+    @NotNull
+    public static GdbMiTuple parseRecordResults(@NotNull GdbMiLexer lexer) {
+        if (!lexer.skip(',')) {
+            return GdbMiTuple.EMPTY;
+        }
+        final int mark = lexer.getItemCount();
+        parseResults(lexer);
+        var result = new GdbMiTuple(lexer.copyItemNames(mark, lexer.getItemCount()), lexer.copyItemValues(mark, lexer.getItemCount()));
+        lexer.dropItems(mark);
+        return result;
+    }
+
+    /// Registers a request with TOKEN. Note: Call this before sending the request--the response could arrive before this returns otherwise.
+    /// Requests have to be registered in the order they are sent.
+    /// Cancel the result in order to stop waiting (if the response still arrives, nobody will get it).
+    @NotNull
+    public CompletableFuture<GdbMiStateResponse> expect(@NotNull String token) {
+        return expect(token, -1L, TimeUnit.NANOSECONDS);
+    }
+
+    /// Like expect(TOKEN), but fails the result with a GdbMiTimeoutException if there is no response within TIMEOUT_MILLIS
+    /// after gdb got to the request--that is, after it answered the ones sent before. Every "+" record (see noteProgress) restarts the timeout.
+    @NotNull
+    public CompletableFuture<GdbMiStateResponse> expect(@NotNull String token, long timeoutMillis) {
+        return expect(token, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @NotNull
+    private CompletableFuture<GdbMiStateResponse> expect(@NotNull String token, long timeout, @NotNull TimeUnit unit) {
+        var result = new CompletableFuture<GdbMiStateResponse>();
+        if (myPendingResponses.putIfAbsent(token, result) != null) {
+            throw new IllegalStateException("token " + token + " is already in use");
+        }
+        myAbandonedTokens.remove(token);
+        result.whenComplete((response, throwable) -> {
+            if (myPendingResponses.remove(token, result) && throwable != null) { // cancelled or timed out
+                myAbandonedTokens.add(token);
+            }
+        });
+        synchronized (mySent) {
+            var sent = new Sent(token, result, myScheduler != null && timeout >= 0 ? unit.toNanos(timeout) : -1L);
+            mySent.put(token, sent);
+            if (mySent.size() == 1 && !myHeadTimedOut) {
+                startDeadlineLocked(sent);
+            }
+        }
+        return result;
+    }
+
+    // Note: Call with mySent locked.
+    private void startDeadlineLocked(@NotNull Sent sent) {
+        if (sent.timeoutNanos() >= 0) {
+            scheduleDeadline(sent, System.nanoTime(), sent.timeoutNanos());
         }
     }
 
-    public void produce(GdbMiStateResponse item) throws InterruptedException {
-        //println(currentThread().getId() + currentThread().getName() + " produce");
-        myQueue.put(item);
+    // Forgets TOKEN. Returns whether it was the first one.
+    // Note: Call with mySent locked.
+    private boolean removeSentLocked(@NotNull String token) {
+        var iterator = mySent.keySet().iterator();
+        boolean first = iterator.hasNext() && iterator.next().equals(token);
+        return mySent.remove(token) != null && first;
+    }
+
+    // gdb sent a result record (for TOKEN, if not null): it's done with a request, so the next one's timeout starts.
+    private void noteResult(@Nullable String token) {
+        synchronized (mySent) {
+            boolean first = token != null && removeSentLocked(token);
+            if ((first || myHeadTimedOut) && !mySent.isEmpty()) {
+                startDeadlineLocked(mySent.values().iterator().next());
+            }
+            myHeadTimedOut = false;
+        }
+    }
+
+    /// Forgets the request with TOKEN (see expect), which could not be sent after all--so there won't be an answer.
+    /// Note: Complete its response (for example cancel it) first.
+    public void forgetUnsent(@NotNull String token) {
+        synchronized (mySent) {
+            if (removeSentLocked(token) && !myHeadTimedOut && !mySent.isEmpty()) {
+                startDeadlineLocked(mySent.values().iterator().next());
+            }
+        }
+        myAbandonedTokens.remove(token);
+    }
+
+    private void scheduleDeadline(@NotNull Sent sent, long startNanos, long delayNanos) {
+        myScheduler.schedule(() -> {
+            synchronized (mySent) {
+                if (mySent.get(sent.token()) != sent) { // answered
+                    return;
+                }
+            }
+            final long remainingNanos = Math.max(startNanos, myLastProgressNanos) + sent.timeoutNanos() - System.nanoTime();
+            if (remainingNanos > 0) {
+                scheduleDeadline(sent, startNanos, remainingNanos);
+            } else {
+                sent.response().completeExceptionally(new GdbMiTimeoutException("no response to request " + sent.token() + " from GDB/MI within " + TimeUnit.NANOSECONDS.toMillis(sent.timeoutNanos()) + " ms"));
+                synchronized (mySent) {
+                    if (mySent.remove(sent.token()) != null) {
+                        myHeadTimedOut = true;
+                    }
+                }
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /// Called for "+" records: gdb is still busy with a slow operation, so it's not stuck.
+    public void noteProgress() {
+        myLastProgressNanos = System.nanoTime();
+    }
+
+    /// Hands ITEM to whoever waits for it. Returns false if nobody does (nor did: the answers to abandoned requests are dropped silently).
+    public boolean produce(@NotNull GdbMiStateResponse item) {
+        var token = item.getToken().orElse(null);
+        noteResult(token);
+        if (token == null) {
+            return false;
+        }
+        var future = myPendingResponses.remove(token);
+        if (future == null) {
+            return myAbandonedTokens.remove(token);
+        }
+        future.complete(item);
+        return true;
+    }
+
+    /// Fails all requests that are still waiting (for example because gdb exited).
+    public void failAll(@NotNull Throwable cause) {
+        synchronized (mySent) {
+            mySent.clear();
+            myHeadTimedOut = false;
+        }
+        for (var token : myPendingResponses.keySet()) {
+            var future = myPendingResponses.remove(token);
+            if (future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
     }
 
-    /// Note: result will be null on timeout.
-    public GdbMiStateResponse consume() throws InterruptedException {
-        //println(currentThread().getId() + currentThread().getName() + " consume");
-        return myQueue.poll(2, TimeUnit.SECONDS);
+    /// SCHEDULER enforces the timeouts (see expect); without one, there are none.
+    public GdbMiProducer(@Nullable ScheduledExecutorService scheduler) {
+        myScheduler = scheduler;
     }
 
     public GdbMiProducer() {
+        this(null);
     }
 }
@@ -0,0 +1,105 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdbMiProducerTest {
+    @org.junit.jupiter.api.Test
+    void pendingResponses() {
+        var producer = new GdbMiProducer();
+        var first = producer.expect("1");
+        var second = producer.expect("2");
+        var third = producer.expect("3");
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("2"), new GdbMiLexer("^done,value=\"2\""))));
+        assertFalse(first.isDone());
+        assertEquals("2", second.join().getAttributes().getString("value"));
+        assertFalse(producer.produce(GdbMiStateResponse.decode(Optional.of("2"), new GdbMiLexer("^done"))));
+        assertFalse(producer.produce(GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer("^done"))));
+        third.cancel(false);
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("3"), new GdbMiLexer("^done")))); // too late, dropped
+        assertFalse(producer.produce(GdbMiStateResponse.decode(Optional.of("3"), new GdbMiLexer("^done"))));
+        producer.failAll(new IOException("gdb exited"));
+        assertTrue(first.isCompletedExceptionally());
+        assertNotNull(producer.expect("1")); // free again
+    }
+
+    @org.junit.jupiter.api.Test
+    void responseTimeout() throws InterruptedException {
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var producer = new GdbMiProducer(scheduler);
+            var slow = producer.expect("1", 50);
+            var fast = producer.expect("2", 60000);
+            var failure = assertThrows(ExecutionException.class, slow::get);
+            assertTrue(failure.getCause() instanceof GdbMiTimeoutException);
+            assertFalse(fast.isDone());
+            assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done")))); // late, dropped
+            assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("2"), new GdbMiLexer("^done"))));
+            assertEquals("done", fast.join().getKlass());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void responseTimeoutBehindSlowRequest() throws InterruptedException {
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var producer = new GdbMiProducer(scheduler);
+            var symbolLoad = producer.expect("1", 300000);
+            var query = producer.expect("2", 50);
+            // gdb didn't get to the query yet, so its timeout didn't start
+            Thread.sleep(200);
+            assertFalse(query.isDone());
+            assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done"))));
+            assertEquals("done", symbolLoad.join().getKlass());
+            // Now it did
+            var failure = assertThrows(ExecutionException.class, query::get);
+            assertTrue(failure.getCause() instanceof GdbMiTimeoutException);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void responseTimeoutBehindStuckRequest() throws InterruptedException {
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var producer = new GdbMiProducer(scheduler);
+            var stuck = producer.expect("1", 50);
+            var query = producer.expect("2", 50);
+            assertThrows(ExecutionException.class, stuck::get);
+            // gdb is still busy with the first one, so the second one's timeout didn't start
+            Thread.sleep(200);
+            assertFalse(query.isDone());
+            assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done")))); // late, dropped
+            // Now it did
+            var failure = assertThrows(ExecutionException.class, query::get);
+            assertTrue(failure.getCause() instanceof GdbMiTimeoutException);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void unsentRequest() throws InterruptedException {
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var producer = new GdbMiProducer(scheduler);
+            var symbolLoad = producer.expect("1", 300000);
+            var query = producer.expect("2", 50);
+            // Writing the first one failed
+            symbolLoad.cancel(false);
+            producer.forgetUnsent("1");
+            var failure = assertThrows(ExecutionException.class, query::get);
+            assertTrue(failure.getCause() instanceof GdbMiTimeoutException);
+            assertFalse(producer.produce(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done"))));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
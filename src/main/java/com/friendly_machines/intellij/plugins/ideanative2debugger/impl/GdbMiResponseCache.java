@@ -0,0 +1,156 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the answers to queries (frames, variables, thread info) for as long as they are valid: within one stop epoch (see GdbMiFilter.getStopEpoch),
+ * and until something writes memory or registers. So reopening a frame, switching back to a thread, or redrawing the variables doesn't ask gdb again.
+ * The key contains the whole command (which includes the thread and the frame). The cache is bounded by the estimated size of the answers;
+ * the least recently used ones go first. A query that is asked again while its answer is still on the way waits for that same answer.
+ */
+public class GdbMiResponseCache {
+    // Commands after which the cached answers could be wrong, even though the debuggee didn't run.
+    // -data-evaluate-expression and -interpreter-exec because they could do anything (like assigning to a variable).
+    private static final Set<String> ourWrites = Set.of(
+            "-data-write-memory-bytes",
+            "-data-write-memory",
+            "-data-write-register-values",
+            "-var-assign",
+            "-data-evaluate-expression",
+            "-interpreter-exec"
+    );
+
+    private record Key(@NotNull String operation, @NotNull List<String> options) {
+    }
+
+    /// @param size the estimated size of the answer, or -1 while it's on the way
+    private record Entry(@NotNull CompletableFuture<GdbMiTuple> value, long size) {
+    }
+
+    private final long myMaxSize;
+    // Guarded by this. In access order.
+    private final LinkedHashMap<Key, Entry> myEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mySize = 0;
+    // The stop epoch that myEntries are for
+    private long myStopEpoch = Long.MIN_VALUE;
+    private long myHitCount = 0;
+    private long myMissCount = 0;
+
+    /// @param maxSize the bound of the estimated size (see GdbMiValue.estimateSize) of all the cached answers
+    public GdbMiResponseCache(long maxSize) {
+        myMaxSize = maxSize;
+    }
+
+    /// Whether the cache has to be invalidated when OPERATION is sent.
+    public static boolean isWrite(@NotNull String operation) {
+        return ourWrites.contains(operation);
+    }
+
+    // Note: Call with this locked.
+    private void clearLocked() {
+        myEntries.clear();
+        mySize = 0;
+    }
+
+    // Note: Call with this locked.
+    private void enterStopEpochLocked(long stopEpoch) {
+        if (stopEpoch > myStopEpoch) {
+            clearLocked();
+            myStopEpoch = stopEpoch;
+        }
+    }
+
+    /// Forgets everything (for example because memory was written).
+    public synchronized void invalidate() {
+        clearLocked();
+    }
+
+    /**
+     * Returns the cached answer to the query OPERATION with OPTIONS in STOP_EPOCH--or the one that's on the way; otherwise asks LOADER for it (and caches it if it succeeds).
+     * Note: Only for queries without side effects.
+     * Note: The answer is shared, so the caller gets a copy: cancelling it only gives up waiting.
+     */
+    @NotNull
+    public CompletableFuture<GdbMiTuple> computeIfAbsent(long stopEpoch, @NotNull String operation, @NotNull Iterable<String> options, @NotNull Supplier<CompletableFuture<GdbMiTuple>> loader) {
+        final var key = new Key(operation, GdbMiSingleFlight.listOf(options));
+        final Entry loading;
+        synchronized (this) {
+            enterStopEpochLocked(stopEpoch);
+            if (stopEpoch != myStopEpoch) { // a query from before the debuggee ran again
+                loading = null;
+            } else {
+                var entry = myEntries.get(key);
+                if (entry != null) {
+                    ++myHitCount;
+                    return entry.value().copy();
+                }
+                ++myMissCount;
+                loading = new Entry(new CompletableFuture<>(), -1);
+                myEntries.put(key, loading);
+            }
+        }
+        if (loading == null) {
+            return loader.get();
+        }
+        loader.get().whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                remove(key, loading);
+                loading.value().completeExceptionally(throwable);
+            } else {
+                loaded(key, loading, value.estimateSize());
+                loading.value().complete(value);
+            }
+        });
+        return loading.value().copy();
+    }
+
+    private synchronized void remove(@NotNull Key key, @NotNull Entry entry) {
+        myEntries.remove(key, entry);
+    }
+
+    /// Accounts for the answer of ENTRY, which arrived--unless the cache was cleared in the meantime.
+    private synchronized void loaded(@NotNull Key key, @NotNull Entry entry, long size) {
+        if (myEntries.get(key) != entry) { // stale
+            return;
+        }
+        if (size > myMaxSize) { // too big
+            myEntries.remove(key);
+            return;
+        }
+        myEntries.put(key, new Entry(entry.value(), size));
+        mySize += size;
+        var iterator = myEntries.values().iterator();
+        while (mySize > myMaxSize) { // evict the least recently used (but not the answers that are still on the way)
+            var victim = iterator.next();
+            if (victim.size() >= 0) {
+                mySize -= victim.size();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return myHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return myMissCount;
+    }
+
+    /// The estimated size of all the cached answers.
+    public synchronized long getSize() {
+        return mySize;
+    }
+
+    public synchronized int getEntryCount() {
+        return myEntries.size();
+    }
+}
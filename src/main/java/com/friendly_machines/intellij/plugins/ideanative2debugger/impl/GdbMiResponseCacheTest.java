@@ -0,0 +1,75 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdbMiResponseCacheTest {
+    @org.junit.jupiter.api.Test
+    void responseCache() {
+        var cache = new GdbMiResponseCache(1000);
+        var loads = new AtomicInteger();
+        Function<String, CompletableFuture<GdbMiTuple>> query = (threadId) -> cache.computeIfAbsent(1, "-stack-list-frames", List.of("--thread", threadId), () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done,stack=[frame={level=\"0\",addr=\"0x1\"}]")).getAttributes());
+        });
+        var first = query.apply("1").join();
+        assertSame(first, query.apply("1").join());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Bounded: with an answer of a few hundred bytes, only a few threads fit; the least recently used go first.
+        for (int i = 2; i < 20; ++i) {
+            query.apply(Integer.toString(i)).join();
+        }
+        assertTrue(cache.getSize() <= 1000);
+        assertTrue(cache.getEntryCount() < 19);
+        int loadCount = loads.get();
+        query.apply("19").join();
+        assertEquals(loadCount, loads.get());
+        query.apply("1").join();
+        assertEquals(loadCount + 1, loads.get());
+
+        // Written memory, or a new stop epoch: ask again.
+        cache.invalidate();
+        query.apply("19").join();
+        assertEquals(loadCount + 2, loads.get());
+        cache.computeIfAbsent(2, "-thread-info", List.of(), () -> CompletableFuture.completedFuture(GdbMiTuple.EMPTY));
+        assertEquals(1, cache.getEntryCount());
+        query.apply("19").join(); // epoch 1 is over: not cached anymore
+        assertEquals(loadCount + 3, loads.get());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @org.junit.jupiter.api.Test
+    void responseCacheInFlight() {
+        var cache = new GdbMiResponseCache(1000);
+        var loads = new AtomicInteger();
+        var answer = new CompletableFuture<GdbMiTuple>();
+        Supplier<CompletableFuture<GdbMiTuple>> query = () -> cache.computeIfAbsent(1, "-thread-info", List.of(), () -> {
+            loads.incrementAndGet();
+            return answer;
+        });
+        // Asked again before the answer arrived: waits for the same one.
+        var first = query.get();
+        var second = query.get();
+        assertEquals(1, loads.get());
+        second.cancel(false); // only gives up waiting
+        assertFalse(answer.isCancelled());
+        answer.complete(GdbMiTuple.EMPTY);
+        assertSame(GdbMiTuple.EMPTY, first.join());
+        assertSame(GdbMiTuple.EMPTY, query.get().join());
+        assertEquals(1, loads.get());
+
+        // A failed query isn't remembered.
+        var failed = cache.computeIfAbsent(1, "-stack-list-frames", List.of(), () -> CompletableFuture.failedFuture(new IllegalStateException()));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(1, cache.getEntryCount());
+    }
+}
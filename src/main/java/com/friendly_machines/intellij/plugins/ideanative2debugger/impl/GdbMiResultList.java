@@ -0,0 +1,64 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * list ==> "[" result ( "," result )* "]"
+ * For example stack=[frame={...},frame={...}]. Unlike in a tuple, names usually repeat here, so the order is what matters.
+ */
+public final class GdbMiResultList extends GdbMiList implements GdbMiResults {
+    public static final GdbMiResultList EMPTY = new GdbMiResultList(new String[0], new GdbMiValue[0]);
+
+    private final String[] myNames;
+
+    /// Note: Takes ownership of the arrays.
+    public GdbMiResultList(@NotNull String @NotNull [] names, @NotNull GdbMiValue @NotNull [] values) {
+        super(values);
+        assert names.length == values.length;
+        myNames = names;
+    }
+
+    /// Columnar list. Note: Takes ownership of NAMES.
+    GdbMiResultList(@NotNull String @NotNull [] names, @NotNull GdbMiColumns columns) {
+        super(columns);
+        assert names.length == columns.size();
+        myNames = names;
+    }
+
+    @Override
+    public long estimateSize() {
+        return super.estimateSize() + 16 + 8L * myNames.length;
+    }
+
+    @Override
+    public @NotNull String getName(int index) {
+        return myNames[index];
+    }
+
+    @Override
+    public @NotNull GdbMiValue getValue(int index) {
+        return get(index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GdbMiResultList other && Arrays.equals(myNames, other.myNames) && super.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(myNames) + super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        var result = new StringBuilder("[");
+        GdbMiResults.appendResults(result, this);
+        result.append(']');
+        return result.toString();
+    }
+}
@@ -0,0 +1,109 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.OptionalLong;
+
+/**
+ * A sequence of "name=value" results, accessible by name.
+ * GDB/MI tuples rarely have more than ten fields, so the lookup is a linear search. If a name occurs more than once, the first one wins.
+ * The typed accessors return null if there is no such name, and throw a ClassCastException if the value has a different type.
+ */
+public interface GdbMiResults {
+    int size();
+
+    @NotNull
+    String getName(int index);
+
+    @NotNull
+    GdbMiValue getValue(int index);
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    default int indexOf(@NotNull String name) {
+        final int size = size();
+        for (int i = 0; i < size; ++i) {
+            if (name.equals(getName(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    default boolean containsKey(@NotNull String name) {
+        return indexOf(name) != -1;
+    }
+
+    @Nullable
+    default GdbMiValue get(@NotNull String name) {
+        int index = indexOf(name);
+        return index != -1 ? getValue(index) : null;
+    }
+
+    @Nullable
+    default String getString(@NotNull String name) throws ClassCastException {
+        var value = (GdbMiConst) get(name);
+        return value != null ? value.getValue() : null;
+    }
+
+    @NotNull
+    default String getString(@NotNull String name, @NotNull String defaultValue) throws ClassCastException {
+        var value = getString(name);
+        return value != null ? value : defaultValue;
+    }
+
+    @Nullable
+    default GdbMiTuple getTuple(@NotNull String name) throws ClassCastException {
+        return (GdbMiTuple) get(name);
+    }
+
+    @Nullable
+    default GdbMiList getList(@NotNull String name) throws ClassCastException {
+        return (GdbMiList) get(name);
+    }
+
+    /// Like getList, but for lists of results. Note: GDB prints an empty one as "[]", which is why that is accepted too.
+    @Nullable
+    default GdbMiResultList getResultList(@NotNull String name) throws ClassCastException {
+        var value = getList(name);
+        if (value != null && value.isEmpty() && !(value instanceof GdbMiResultList)) {
+            return GdbMiResultList.EMPTY;
+        }
+        return (GdbMiResultList) value;
+    }
+
+    /// Parses a decimal or "0x"-prefixed hexadecimal number (as in addresses). Throws NumberFormatException if it is neither.
+    @NotNull
+    default OptionalLong getLong(@NotNull String name) throws ClassCastException, NumberFormatException {
+        var value = getString(name);
+        if (value == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(parseNumber(value));
+    }
+
+    static long parseNumber(@NotNull String value) throws NumberFormatException {
+        if (value.startsWith("0x") || value.startsWith("0X")) {
+            return Long.parseUnsignedLong(value, 2, value.length(), 16);
+        } else {
+            return Long.parseLong(value);
+        }
+    }
+
+    static void appendResults(@NotNull StringBuilder result, @NotNull GdbMiResults results) {
+        final int size = results.size();
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(results.getName(i));
+            result.append('=');
+            result.append(results.getValue(i));
+        }
+    }
+}
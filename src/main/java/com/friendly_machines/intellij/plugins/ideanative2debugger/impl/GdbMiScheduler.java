@@ -0,0 +1,232 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides in which order requests are sent to gdb (see GdbMiPriority).
+ * gdb executes one command after the other, so everything that was written to its stdin already is ahead of a step that the user just asked for.
+ * That's why only a few requests are in flight at a time, and the others wait here.
+ * Execution control requests are sent right away. Before they are, the queries of the stop epoch they end are dropped: their answers would be stale anyway.
+ */
+public class GdbMiScheduler {
+    public interface Sender {
+        @NotNull
+        CompletableFuture<GdbMiStateResponse> send(@NotNull String operation, @NotNull Iterable<String> options, @NotNull Iterable<String> parameters) throws IOException;
+
+        /// Sends all of COMMANDS with a single write, like GdbMiFilter.gdbBatch.
+        @NotNull
+        default List<CompletableFuture<GdbMiStateResponse>> sendBatch(@NotNull List<GdbMiCommand> commands) throws IOException {
+            var responses = new ArrayList<CompletableFuture<GdbMiStateResponse>>(commands.size());
+            for (var command : commands) {
+                responses.add(send(command.operation(), command.options(), command.parameters()));
+            }
+            return responses;
+        }
+    }
+
+    /**
+     * @param commands usually just one; a batch is written at once, and takes one place in flight
+     * @param response the response to the last of COMMANDS (gdb answers in order, so the others are answered by then)
+     */
+    private record Request(@NotNull GdbMiPriority priority, long sequence, long stopEpoch, @NotNull List<GdbMiCommand> commands, @NotNull CompletableFuture<GdbMiStateResponse> response) {
+        /// Whether it's fine to not send this at all once the stop epoch is over.
+        boolean isDroppable() {
+            return commands.stream().allMatch(command -> GdbMiSingleFlight.isQuery(command.operation()));
+        }
+    }
+
+    // Enough so that gdb has the next request at hand when it's done with one.
+    private static final int ourMaxInFlight = 2;
+
+    private final Sender mySender;
+    private final LongSupplier myStopEpoch;
+    private final Executor myExecutor;
+    // Guarded by myQueue
+    private final PriorityQueue<Request> myQueue = new PriorityQueue<>(Comparator.comparing(Request::priority).thenComparingLong(Request::sequence));
+    private long mySequence = 0;
+    // Including the ones in myOutbox. Guarded by myQueue.
+    private int myInFlightCount = 0;
+    // The requests whose turn it is, in the order they are to be written. Guarded by myQueue.
+    // They are written without myQueue locked: writing to gdb can block, and submitters (like the UI thread) must not wait for that.
+    private final ArrayDeque<Request> myOutbox = new ArrayDeque<>();
+    // Whether a thread is writing the requests in myOutbox. Guarded by myQueue.
+    private boolean mySending = false;
+
+    /**
+     * @param stopEpoch see GdbMiFilter.getStopEpoch
+     * @param executor sends the next requests once a response arrived (not in the thread that reads gdb's output, which could block on writing to gdb)
+     */
+    public GdbMiScheduler(@NotNull Sender sender, @NotNull LongSupplier stopEpoch, @NotNull Executor executor) {
+        mySender = sender;
+        myStopEpoch = stopEpoch;
+        myExecutor = executor;
+    }
+
+    /**
+     * Sends the request as soon as it's its turn.
+     * @return the response. If the request is dropped before it is sent, it's cancelled.
+     * Cancelling it gives up the request: if it wasn't sent yet, it won't be; otherwise its place in flight goes to the next one (see send).
+     */
+    @NotNull
+    public CompletableFuture<GdbMiStateResponse> submit(@NotNull GdbMiPriority priority, @NotNull String operation, @NotNull Iterable<String> options, @NotNull Iterable<String> parameters) {
+        return submitBatch(priority, List.of(new GdbMiCommand(operation, toList(options), toList(parameters))));
+    }
+
+    /**
+     * Like submit, but sends all of COMMANDS (at least one) with a single write as soon as it's their turn--for example a lot of small cleanups.
+     * @return the response to the last of COMMANDS
+     */
+    @NotNull
+    public CompletableFuture<GdbMiStateResponse> submitBatch(@NotNull GdbMiPriority priority, @NotNull List<GdbMiCommand> commands) {
+        var response = new CompletableFuture<GdbMiStateResponse>();
+        final Request request;
+        synchronized (myQueue) {
+            request = new Request(priority, mySequence++, myStopEpoch.getAsLong(), commands, response);
+            if (priority == GdbMiPriority.EXECUTION_CONTROL) {
+                dropStale(request.stopEpoch());
+                ++myInFlightCount;
+                myOutbox.add(request);
+            } else {
+                myQueue.add(request);
+                sendQueued();
+            }
+        }
+        response.whenComplete((item, throwable) -> {
+            if (response.isCancelled()) {
+                synchronized (myQueue) {
+                    myQueue.remove(request); // if it's still waiting for its turn
+                }
+            }
+        });
+        flush();
+        return response;
+    }
+
+    @NotNull
+    private static List<String> toList(@NotNull Iterable<String> items) {
+        if (items instanceof List<String> list) {
+            return list;
+        }
+        var result = new ArrayList<String>();
+        items.forEach(result::add);
+        return result;
+    }
+
+    /// Drops the queued queries of STOP_EPOCH and before.
+    private void dropStale(long stopEpoch) {
+        var stale = new ArrayList<Request>();
+        myQueue.removeIf(request -> request.isDroppable() && request.stopEpoch() <= stopEpoch && stale.add(request));
+        // Only after removeIf: cancelling one calls back into myQueue (see submitBatch).
+        for (var request : stale) {
+            request.response().cancel(false);
+        }
+    }
+
+    // Moves the next requests to myOutbox, as far as there's room in flight.
+    // Note: Call with myQueue locked.
+    private void sendQueued() {
+        while (myInFlightCount < ourMaxInFlight) {
+            var request = myQueue.poll();
+            if (request == null) {
+                break;
+            }
+            if (request.response().isDone()) { // cancelled by the caller
+                continue;
+            }
+            if (request.isDroppable() && request.stopEpoch() != myStopEpoch.getAsLong()) {
+                request.response().cancel(false);
+                continue;
+            }
+            ++myInFlightCount;
+            myOutbox.add(request);
+        }
+    }
+
+    /// Writes the requests in myOutbox, unless another thread is doing that already (then it writes these too, in order).
+    /// Note: Call without myQueue locked.
+    private void flush() {
+        synchronized (myQueue) {
+            if (mySending) {
+                return;
+            }
+            mySending = true;
+        }
+        while (true) {
+            final Request request;
+            synchronized (myQueue) {
+                request = myOutbox.poll();
+                if (request == null) {
+                    mySending = false;
+                    return;
+                }
+            }
+            send(request);
+        }
+    }
+
+    // Note: Call without myQueue locked.
+    private void send(@NotNull Request request) {
+        if (request.response().isDone()) { // cancelled by the caller while in myOutbox
+            synchronized (myQueue) {
+                --myInFlightCount;
+                sendQueued();
+            }
+            return;
+        }
+        final CompletableFuture<GdbMiStateResponse> sent;
+        try {
+            var commands = request.commands();
+            if (commands.size() == 1) {
+                var command = commands.get(0);
+                sent = mySender.send(command.operation(), command.options(), command.parameters());
+            } else {
+                var responses = mySender.sendBatch(commands);
+                sent = responses.get(responses.size() - 1);
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (myQueue) {
+                --myInFlightCount;
+                sendQueued();
+            }
+            request.response().completeExceptionally(e);
+            return;
+        }
+        // Gives up waiting for the answer--which frees the place in flight, below.
+        request.response().whenComplete((item, throwable) -> {
+            if (request.response().isCancelled()) {
+                sent.cancel(false);
+            }
+        });
+        sent.whenCompleteAsync((item, throwable) -> {
+            synchronized (myQueue) {
+                --myInFlightCount;
+                sendQueued();
+            }
+            if (throwable != null) {
+                request.response().completeExceptionally(throwable);
+            } else {
+                request.response().complete(item);
+            }
+            flush();
+        }, myExecutor);
+    }
+
+    /// The number of requests that wait for their turn (for tests).
+    int getQueuedCount() {
+        synchronized (myQueue) {
+            return myQueue.size();
+        }
+    }
+}
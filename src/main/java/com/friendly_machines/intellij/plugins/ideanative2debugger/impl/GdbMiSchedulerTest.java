@@ -0,0 +1,145 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdbMiSchedulerTest {
+    @org.junit.jupiter.api.Test
+    void scheduler() {
+        var producer = new GdbMiProducer();
+        var epoch = new AtomicLong();
+        var sent = new ArrayList<String>();
+        var scheduler = new GdbMiScheduler((operation, options, parameters) -> {
+            if (operation.startsWith("-exec-")) {
+                epoch.incrementAndGet();
+            }
+            sent.add(operation);
+            return producer.expect(Integer.toString(sent.size()));
+        }, epoch::get, Runnable::run);
+        var none = List.<String>of();
+        scheduler.submit(GdbMiPriority.VISIBLE, "-thread-info", none, none);
+        scheduler.submit(GdbMiPriority.VISIBLE, "-stack-list-frames", List.of("--thread", "1"), none);
+        var prefetch = scheduler.submit(GdbMiPriority.PREFETCH, "-stack-list-frames", List.of("--thread", "2"), none);
+        var registers = scheduler.submit(GdbMiPriority.VISIBLE, "-data-list-register-names", none, none);
+        var breakpoint = scheduler.submit(GdbMiPriority.VISIBLE, "-break-insert", List.of("main.rs:1"), none);
+        assertEquals(List.of("-thread-info", "-stack-list-frames"), sent);
+        assertEquals(3, scheduler.getQueuedCount());
+
+        var step = scheduler.submit(GdbMiPriority.EXECUTION_CONTROL, "-exec-next", none, none);
+        assertEquals("-exec-next", sent.get(2)); // right away
+        assertTrue(prefetch.isCancelled());
+        assertTrue(registers.isCancelled());
+        assertEquals(1, scheduler.getQueuedCount()); // not a query, so still sent
+
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done"))));
+        assertEquals(3, sent.size()); // -exec-next counts as in flight, too
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("2"), new GdbMiLexer("^done"))));
+        assertEquals("-break-insert", sent.get(3));
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("4"), new GdbMiLexer("^done"))));
+        assertTrue(breakpoint.isDone());
+        assertFalse(step.isDone());
+    }
+
+    @org.junit.jupiter.api.Test
+    void schedulerBatch() {
+        var producer = new GdbMiProducer();
+        var writes = new ArrayList<List<String>>();
+        var tokens = new int[1];
+        var scheduler = new GdbMiScheduler(new GdbMiScheduler.Sender() {
+            @Override
+            public @NotNull CompletableFuture<GdbMiStateResponse> send(@NotNull String operation, @NotNull Iterable<String> options, @NotNull Iterable<String> parameters) {
+                writes.add(List.of(operation));
+                return producer.expect(Integer.toString(++tokens[0]));
+            }
+
+            @Override
+            public @NotNull List<CompletableFuture<GdbMiStateResponse>> sendBatch(@NotNull List<GdbMiCommand> commands) {
+                writes.add(commands.stream().map(GdbMiCommand::operation).toList());
+                return commands.stream().map(command -> producer.expect(Integer.toString(++tokens[0]))).toList();
+            }
+        }, () -> 0, Runnable::run);
+        var none = List.<String>of();
+        var deletes = scheduler.submitBatch(GdbMiPriority.PREFETCH, List.of(new GdbMiCommand("-var-delete", List.of("var1")), new GdbMiCommand("-var-delete", List.of("var2"))));
+        scheduler.submit(GdbMiPriority.VISIBLE, "-thread-info", none, none);
+        scheduler.submit(GdbMiPriority.VISIBLE, "-stack-list-frames", none, none);
+        // One write, and one place in flight
+        assertEquals(List.of(List.of("-var-delete", "-var-delete"), List.of("-thread-info")), writes);
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done"))));
+        assertFalse(deletes.isDone());
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("2"), new GdbMiLexer("^done"))));
+        assertTrue(deletes.isDone());
+        assertEquals(List.of("-stack-list-frames"), writes.get(2));
+    }
+
+    @org.junit.jupiter.api.Test
+    void schedulerCancel() {
+        var producer = new GdbMiProducer();
+        var sent = new ArrayList<String>();
+        var responses = new ArrayList<CompletableFuture<GdbMiStateResponse>>();
+        var scheduler = new GdbMiScheduler((operation, options, parameters) -> {
+            sent.add(operation);
+            var response = producer.expect(Integer.toString(sent.size()));
+            responses.add(response);
+            return response;
+        }, () -> 0, Runnable::run);
+        var none = List.<String>of();
+        var threads = scheduler.submit(GdbMiPriority.VISIBLE, "-thread-info", none, none);
+        scheduler.submit(GdbMiPriority.VISIBLE, "-stack-list-frames", none, none);
+        var registers = scheduler.submit(GdbMiPriority.VISIBLE, "-data-list-register-names", none, none);
+        scheduler.submit(GdbMiPriority.VISIBLE, "-data-disassemble", none, none);
+
+        // Not sent yet: it never will be.
+        registers.cancel(false);
+        assertEquals(1, scheduler.getQueuedCount());
+
+        // In flight: it's given up, and the next one takes its place.
+        threads.cancel(false);
+        assertTrue(responses.get(0).isCancelled());
+        assertEquals(List.of("-thread-info", "-stack-list-frames", "-data-disassemble"), sent);
+        assertEquals(0, scheduler.getQueuedCount());
+        // Its answer still arrives, but nobody waits for it anymore.
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done"))));
+    }
+
+    @org.junit.jupiter.api.Test
+    void schedulerDoesNotWaitForWrites() throws InterruptedException {
+        var producer = new GdbMiProducer();
+        var writing = new CountDownLatch(1);
+        var unblock = new CountDownLatch(1);
+        var sent = Collections.synchronizedList(new ArrayList<String>());
+        var scheduler = new GdbMiScheduler((operation, options, parameters) -> {
+            if (sent.isEmpty()) { // gdb doesn't read its stdin for a while
+                writing.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            sent.add(operation);
+            return producer.expect(Integer.toString(sent.size()));
+        }, () -> 0, Runnable::run);
+        var none = List.<String>of();
+        var writer = new Thread(() -> scheduler.submit(GdbMiPriority.VISIBLE, "-thread-info", none, none));
+        writer.start();
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        // Returns right away; the blocked thread writes it after its own request.
+        var step = scheduler.submit(GdbMiPriority.EXECUTION_CONTROL, "-exec-next", none, none);
+        assertFalse(step.isDone());
+        assertTrue(sent.isEmpty());
+        unblock.countDown();
+        writer.join(10000);
+        assertEquals(List.of("-thread-info", "-exec-next"), sent);
+    }
+}
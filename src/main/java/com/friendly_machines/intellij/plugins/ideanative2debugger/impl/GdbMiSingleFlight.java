@@ -0,0 +1,83 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one round trip to gdb among identical queries that are in flight at the same time.
+ * When the debuggee stops, the debugger tree, the frames list, CpuRegistersView and CpuAssemblyView all ask gdb the same questions at about the same time.
+ * Only queries without side effects are shared, and only within the same stop epoch (see GdbMiFilter.getStopEpoch)--after the debuggee ran, the answer could be different.
+ */
+public class GdbMiSingleFlight {
+    // Note: Not -data-evaluate-expression: the expression could have side effects.
+    private static final Set<String> ourQueries = Set.of(
+            "-thread-info",
+            "-thread-list-ids",
+            "-stack-info-depth",
+            "-stack-info-frame",
+            "-stack-list-frames",
+            "-stack-list-arguments",
+            "-stack-list-locals",
+            "-stack-list-variables",
+            "-data-list-register-names",
+            "-data-list-register-values",
+            "-data-list-changed-registers",
+            "-data-disassemble",
+            "-data-read-memory-bytes",
+            "-list-features"
+    );
+
+    private record Key(long stopEpoch, @NotNull String operation, @NotNull List<String> options, @NotNull List<String> parameters) {
+    }
+
+    public interface Sender {
+        @NotNull
+        CompletableFuture<GdbMiStateResponse> send() throws IOException;
+    }
+
+    private final ConcurrentHashMap<Key, CompletableFuture<GdbMiStateResponse>> myInFlight = new ConcurrentHashMap<>();
+
+    public static boolean isQuery(@NotNull String operation) {
+        return ourQueries.contains(operation);
+    }
+
+    static List<String> listOf(@NotNull Iterable<String> items) {
+        if (items instanceof List<String> list) {
+            return list;
+        }
+        var result = new ArrayList<String>();
+        items.forEach(result::add);
+        return result;
+    }
+
+    /**
+     * If the same query is already in flight in STOP_EPOCH, returns its response. Otherwise, sends it using SENDER.
+     * Note: The caller gets a copy of the shared response, so cancelling it does not affect the others.
+     */
+    @NotNull
+    public CompletableFuture<GdbMiStateResponse> share(long stopEpoch, @NotNull String operation, @NotNull Iterable<String> options, @NotNull Iterable<String> parameters, @NotNull Sender sender) throws IOException {
+        var key = new Key(stopEpoch, operation, listOf(options), listOf(parameters));
+        var existing = myInFlight.get(key);
+        if (existing != null) {
+            return existing.copy();
+        }
+        // Note: Called with the lock of gdb's stdin held (see GdbMiFilter.gdbSendAsync), so nobody else can send the same query in the meantime.
+        var response = sender.send();
+        myInFlight.put(key, response);
+        response.whenComplete((item, throwable) -> myInFlight.remove(key, response));
+        return response.copy();
+    }
+
+    /// The number of queries in flight (for tests).
+    int size() {
+        return myInFlight.size();
+    }
+}
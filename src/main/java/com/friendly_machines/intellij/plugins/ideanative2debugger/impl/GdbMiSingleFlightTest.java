@@ -0,0 +1,29 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GdbMiSingleFlightTest {
+    @org.junit.jupiter.api.Test
+    void singleFlight() throws IOException {
+        var singleFlight = new GdbMiSingleFlight();
+        var producer = new GdbMiProducer();
+        var sent = new AtomicInteger();
+        GdbMiSingleFlight.Sender sender = () -> producer.expect(Integer.toString(sent.incrementAndGet()));
+        var first = singleFlight.share(1, "-thread-info", List.of(), List.of(), sender);
+        var second = singleFlight.share(1, "-thread-info", List.of(), List.of(), sender);
+        var otherEpoch = singleFlight.share(2, "-thread-info", List.of(), List.of(), sender);
+        assertEquals(2, sent.get());
+        second.cancel(false); // doesn't affect the others
+        assertTrue(producer.produce(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done,current-thread-id=\"1\""))));
+        assertEquals("1", first.join().getAttributes().getString("current-thread-id"));
+        assertFalse(otherEpoch.isDone());
+        assertEquals(1, singleFlight.size());
+        singleFlight.share(1, "-thread-info", List.of(), List.of(), sender); // not in flight anymore
+        assertEquals(3, sent.get());
+    }
+}
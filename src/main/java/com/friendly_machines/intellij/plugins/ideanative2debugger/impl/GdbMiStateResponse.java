@@ -4,44 +4,42 @@ package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Map;
 import java.util.Optional;
-import java.util.Scanner;
 
 public class GdbMiStateResponse {
     private final char myMode;
     private final Optional<String> myToken;
     private final String myKlass;
-    private final Map<String, ?> myAttributes;
+    private final GdbMiTuple myAttributes;
 
-    public GdbMiStateResponse(Optional<String> token, char mode, String klass, Map<String, ?> attributes) {
+    public GdbMiStateResponse(Optional<String> token, char mode, String klass, @NotNull GdbMiTuple attributes) {
         myToken = token;
         myMode = mode;
         myKlass = klass;
         myAttributes = attributes;
     }
 
-    public static GdbMiStateResponse decode(Optional<String> token, @NotNull Scanner scanner) {
+    /// Records at least this long are decoded lazily (see GdbMiProducer.skimRecordResults). Usually only a few of their attributes are ever read.
+    public static final int LAZY_DECODING_THRESHOLD = 1024;
+
+    public static GdbMiStateResponse decode(Optional<String> token, @NotNull GdbMiLexer lexer) {
+        return decode(token, lexer, lexer.getEnd() - lexer.getPosition() >= LAZY_DECODING_THRESHOLD);
+    }
+
+    public static GdbMiStateResponse decode(Optional<String> token, @NotNull GdbMiLexer lexer, boolean lazily) {
         // "+": contains on-going status information about the progress of a slow operation.
         // "*": contains asynchronous state change on the target (stopped, started, disappeared)
         // "=": contains supplementary information that the client should handle (e.g., a new breakpoint information)
         // "^": sync command result
-        char mode = scanner.next().charAt(0);
-        String klass = GdbMiProducer.parseKlass(scanner); // Note: not specified
-        var result = new java.util.HashMap<String, Object>();
-        while (scanner.hasNext(",")) {
-            scanner.next(",");
-            var name = GdbMiProducer.parseSymbol(scanner);
-            scanner.next("=");
-            var value = GdbMiProducer.parseValue(scanner);
-            result.put(name, value);
-        }
+        char mode = lexer.next();
+        String klass = GdbMiProducer.parseKlass(lexer); // Note: not specified
+        var result = lazily ? GdbMiProducer.skimRecordResults(lexer) : GdbMiProducer.parseRecordResults(lexer);
         return new GdbMiStateResponse(token, mode, klass, result);
     }
 
     public static GdbMiStateResponse errorResponse(Optional<String> token, char mode, String klass, String errorMessage) {
-        // TODO: add error message somehow?
-        return new GdbMiStateResponse(token, mode, klass, new java.util.HashMap<>());
+        // Like a "^error,msg=..." from GDB itself
+        return new GdbMiStateResponse(token, mode, klass, new GdbMiTuple(new String[]{"msg"}, new GdbMiValue[]{new GdbMiConst(errorMessage)}));
     }
 
     public char getMode() {
@@ -52,7 +50,8 @@ public class GdbMiStateResponse {
         return myKlass;
     }
 
-    public Map<String, ?> getAttributes() {
+    @NotNull
+    public GdbMiTuple getAttributes() {
         return myAttributes;
     }
 
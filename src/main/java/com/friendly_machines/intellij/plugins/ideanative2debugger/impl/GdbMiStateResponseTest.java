@@ -1,22 +1,111 @@
 package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
-import java.util.Scanner;
 
-//import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 class GdbMiStateResponseTest {
     @org.junit.jupiter.api.Test
     void decode() {
-        var scanner = new Scanner("^done,asm_insns=[src_and_asm_line={line=\"2\",file=\"src/main.rs\",fullname=\"/home/dannym/src/Oxide/ex1/src/main.rs\",line_asm_insn=[{address=\"0x00007ffff7f9dda4\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"4\",inst=\"lea    rdi,[rsp+0x8]\"},{address=\"0x00007ffff7f9dda9\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"9\",inst=\"lea    rsi,[rip+0x5c4d0]        # 0x7ffff7ffa280\"},{address=\"0x00007ffff7f9ddb0\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"16\",inst=\"mov    edx,0x1\"},{address=\"0x00007ffff7f9ddb5\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"21\",inst=\"lea    rcx,[rip+0x492b4]        # 0x7ffff7fe7070\"},{address=\"0x00007ffff7f9ddbc\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"28\",inst=\"xor    eax,eax\"},{address=\"0x00007ffff7f9ddbe\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"30\",inst=\"mov    r8d,eax\"},{address=\"0x00007ffff7f9ddc1\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"33\",inst=\"call   0x7ffff7f9dbf0 <_ZN4core3fmt9Arguments6new_v117h892389e75857fc7eE>\"},{address=\"0x00007ffff7f9ddc6\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"38\",inst=\"lea    rdi,[rsp+0x8]\"},{address=\"0x00007ffff7f9ddcb\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"43\",inst=\"call   QWORD PTR [rip+0x5ee57]        # 0x7ffff7ffcc28\"}]}]");
-        scanner.useDelimiter(""); // char-by-char mode
-        GdbMiStateResponse.decode(Optional.of("14"), scanner);
+        var lexer = new GdbMiLexer("^done,asm_insns=[src_and_asm_line={line=\"2\",file=\"src/main.rs\",fullname=\"/home/dannym/src/Oxide/ex1/src/main.rs\",line_asm_insn=[{address=\"0x00007ffff7f9dda4\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"4\",inst=\"lea    rdi,[rsp+0x8]\"},{address=\"0x00007ffff7f9dda9\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"9\",inst=\"lea    rsi,[rip+0x5c4d0]        # 0x7ffff7ffa280\"},{address=\"0x00007ffff7f9ddb0\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"16\",inst=\"mov    edx,0x1\"},{address=\"0x00007ffff7f9ddb5\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"21\",inst=\"lea    rcx,[rip+0x492b4]        # 0x7ffff7fe7070\"},{address=\"0x00007ffff7f9ddbc\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"28\",inst=\"xor    eax,eax\"},{address=\"0x00007ffff7f9ddbe\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"30\",inst=\"mov    r8d,eax\"},{address=\"0x00007ffff7f9ddc1\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"33\",inst=\"call   0x7ffff7f9dbf0 <_ZN4core3fmt9Arguments6new_v117h892389e75857fc7eE>\"},{address=\"0x00007ffff7f9ddc6\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"38\",inst=\"lea    rdi,[rsp+0x8]\"},{address=\"0x00007ffff7f9ddcb\",func-name=\"_ZN3ex14main17h2bf65616aeb83c38E\",offset=\"43\",inst=\"call   QWORD PTR [rip+0x5ee57]        # 0x7ffff7ffcc28\"}]}]");
+        GdbMiStateResponse.decode(Optional.of("14"), lexer);
     }
 
     @org.junit.jupiter.api.Test
     void decode2() {
-        var scanner = new Scanner("^done,register-values=[{number=\"0\",value=\"0x7ffff7ffa250\"},{number=\"1\",value=\"0x7fffffffd550\"},{number=\"2\",value=\"0x800000\"},{number=\"3\",value=\"0x7ffff7ffdb40\"},{number=\"4\",value=\"0x1\"},{number=\"5\",value=\"0x7ffff7f9dda0\"},{number=\"6\",value=\"0x0\"},{number=\"7\",value=\"0x7fffffffd420\"},{number=\"8\",value=\"0x7ffff7fff0b0\"},{number=\"9\",value=\"0x7ffffffffffffff8\"},{number=\"10\",value=\"0x8\"},{number=\"11\",value=\"0x246\"},{number=\"12\",value=\"0x7fffffffd6c8\"},{number=\"13\",value=\"0x1\"},{number=\"14\",value=\"0x7ffff7fda492\"},{number=\"15\",value=\"0x7fffffffd650\"},{number=\"16\",value=\"0x7ffff7f9dda4\"},{number=\"17\",value=\"0x202\"},{number=\"18\",value=\"0x33\"},{number=\"19\",value=\"0x2b\"},{number=\"20\",value=\"0x0\"},{number=\"21\",value=\"0x0\"},{number=\"22\",value=\"0x0\"},{number=\"23\",value=\"0x0\"},{number=\"24\",value=\"0x0\"},{number=\"25\",value=\"0x0\"},{number=\"26\",value=\"0x0\"},{number=\"27\",value=\"0x0\"},{number=\"28\",value=\"0x0\"},{number=\"29\",value=\"0x0\"},{number=\"30\",value=\"0x0\"},{number=\"31\",value=\"0x0\"},{number=\"32\",value=\"0x37f\"},{number=\"33\",value=\"0x0\"},{number=\"34\",value=\"0xffff\"},{number=\"35\",value=\"0x0\"},{number=\"36\",value=\"0x0\"},{number=\"37\",value=\"0x0\"},{number=\"38\",value=\"0x0\"},{number=\"39\",value=\"0x0\"},{number=\"40\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0],\\n  v4_float: [0x0, 0x0, 0xf7fdefc3, 0x7fff],\\n  v2_double: [0x0, 0x7ffff7fdefc3],\\n  v16_int8: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0xc3, 0xef, 0xfd, 0xf7, 0xff, 0x7f, 0x0, 0x0],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0],\\n  v4_int32: [0x0, 0x0, 0xf7fdefc3, 0x7fff],\\n  v2_int64: [0x0, 0x7ffff7fdefc3],\\n  uint128: 0x7ffff7fdefc30000000000000000\\n}\"},{number=\"41\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"42\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"43\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"44\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"45\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"46\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"47\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"48\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"49\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"50\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"51\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"52\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"53\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"54\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"55\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"56\",value=\"0x1f80\"},{number=\"57\",value=\"0x0\"},{number=\"58\",value=\"0x0\"},{number=\"59\",value=\"0x0\"},{number=\"60\",value=\"0x0\"},{number=\"61\",value=\"0x0\"},{number=\"62\",value=\"0x0\"},{number=\"63\",value=\"0x0\"},{number=\"64\",value=\"0x0\"},{number=\"65\",value=\"0x0\"},{number=\"66\",value=\"0x0\"},{number=\"67\",value=\"0x0\"},{number=\"68\",value=\"0x0\"},{number=\"69\",value=\"0x0\"},{number=\"70\",value=\"0x0\"},{number=\"71\",value=\"0x0\"},{number=\"72\",value=\"0x0\"},{number=\"152\",value=\"0x7ffff7ffeaa8\"},{number=\"153\",value=\"0x0\"},{number=\"154\",value=\"0xffffffffffffffff\"},{number=\"155\",value=\"0x50\"},{number=\"156\",value=\"0x50\"},{number=\"157\",value=\"0x0\"},{number=\"158\",value=\"0x40\"},{number=\"159\",value=\"0x1\"},{number=\"160\",value=\"0xa0\"},{number=\"161\",value=\"0x0\"},{number=\"162\",value=\"0x20\"},{number=\"163\",value=\"0xb0\"},{number=\"164\",value=\"0xf8\"},{number=\"165\",value=\"0x8\"},{number=\"166\",value=\"0x46\"},{number=\"167\",value=\"0xc8\"},{number=\"168\",value=\"0x1\"},{number=\"169\",value=\"0x92\"},{number=\"170\",value=\"0x50\"},{number=\"171\",value=\"0xa2\"},{number=\"172\",value=\"0xd5\"},{number=\"173\",value=\"0x0\"},{number=\"174\",value=\"0xdb\"},{number=\"175\",value=\"0xa250\"},{number=\"176\",value=\"0xd550\"},{number=\"177\",value=\"0x0\"},{number=\"178\",value=\"0xdb40\"},{number=\"179\",value=\"0x1\"},{number=\"180\",value=\"0xdda0\"},{number=\"181\",value=\"0x0\"},{number=\"183\",value=\"0xf0b0\"},{number=\"184\",value=\"0xfff8\"},{number=\"185\",value=\"0x8\"},{number=\"186\",value=\"0x246\"},{number=\"187\",value=\"0xd6c8\"},{number=\"188\",value=\"0x1\"},{number=\"189\",value=\"0xa492\"},{number=\"190\",value=\"0xd650\"},{number=\"191\",value=\"0xf7ffa250\"},{number=\"192\",value=\"0xffffd550\"},{number=\"193\",value=\"0x800000\"},{number=\"194\",value=\"0xf7ffdb40\"},{number=\"195\",value=\"0x1\"},{number=\"196\",value=\"0xf7f9dda0\"},{number=\"197\",value=\"0x0\"},{number=\"198\",value=\"0xffffd420\"},{number=\"199\",value=\"0xf7fff0b0\"},{number=\"200\",value=\"0xfffffff8\"},{number=\"201\",value=\"0x8\"},{number=\"202\",value=\"0x246\"},{number=\"203\",value=\"0xffffd6c8\"},{number=\"204\",value=\"0x1\"},{number=\"205\",value=\"0xf7fda492\"},{number=\"206\",value=\"0xffffd650\"},{number=\"207\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v16_half: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_float: [0x0, 0x0, 0xf7fdefc3, 0x7fff, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x7ffff7fdefc3, 0x0, 0x0],\\n  v32_int8: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0xc3, 0xef, 0xfd, 0xf7, 0xff, 0x7f, 0x0 <repeats 18 times>],\\n  v16_int16: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_int32: [0x0, 0x0, 0xf7fdefc3, 0x7fff, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x7ffff7fdefc3, 0x0, 0x0],\\n  v2_int128: [0x7ffff7fdefc30000000000000000, 0x0]\\n}\"},{number=\"208\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"209\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"210\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"211\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"212\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"213\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"214\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"215\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"216\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"217\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"218\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"219\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"220\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"221\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"222\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"}]");
-        scanner.useDelimiter(""); // char-by-char mode
-        GdbMiStateResponse.decode(Optional.of("13"), scanner);
+        var lexer = new GdbMiLexer("^done,register-values=[{number=\"0\",value=\"0x7ffff7ffa250\"},{number=\"1\",value=\"0x7fffffffd550\"},{number=\"2\",value=\"0x800000\"},{number=\"3\",value=\"0x7ffff7ffdb40\"},{number=\"4\",value=\"0x1\"},{number=\"5\",value=\"0x7ffff7f9dda0\"},{number=\"6\",value=\"0x0\"},{number=\"7\",value=\"0x7fffffffd420\"},{number=\"8\",value=\"0x7ffff7fff0b0\"},{number=\"9\",value=\"0x7ffffffffffffff8\"},{number=\"10\",value=\"0x8\"},{number=\"11\",value=\"0x246\"},{number=\"12\",value=\"0x7fffffffd6c8\"},{number=\"13\",value=\"0x1\"},{number=\"14\",value=\"0x7ffff7fda492\"},{number=\"15\",value=\"0x7fffffffd650\"},{number=\"16\",value=\"0x7ffff7f9dda4\"},{number=\"17\",value=\"0x202\"},{number=\"18\",value=\"0x33\"},{number=\"19\",value=\"0x2b\"},{number=\"20\",value=\"0x0\"},{number=\"21\",value=\"0x0\"},{number=\"22\",value=\"0x0\"},{number=\"23\",value=\"0x0\"},{number=\"24\",value=\"0x0\"},{number=\"25\",value=\"0x0\"},{number=\"26\",value=\"0x0\"},{number=\"27\",value=\"0x0\"},{number=\"28\",value=\"0x0\"},{number=\"29\",value=\"0x0\"},{number=\"30\",value=\"0x0\"},{number=\"31\",value=\"0x0\"},{number=\"32\",value=\"0x37f\"},{number=\"33\",value=\"0x0\"},{number=\"34\",value=\"0xffff\"},{number=\"35\",value=\"0x0\"},{number=\"36\",value=\"0x0\"},{number=\"37\",value=\"0x0\"},{number=\"38\",value=\"0x0\"},{number=\"39\",value=\"0x0\"},{number=\"40\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0],\\n  v4_float: [0x0, 0x0, 0xf7fdefc3, 0x7fff],\\n  v2_double: [0x0, 0x7ffff7fdefc3],\\n  v16_int8: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0xc3, 0xef, 0xfd, 0xf7, 0xff, 0x7f, 0x0, 0x0],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0],\\n  v4_int32: [0x0, 0x0, 0xf7fdefc3, 0x7fff],\\n  v2_int64: [0x0, 0x7ffff7fdefc3],\\n  uint128: 0x7ffff7fdefc30000000000000000\\n}\"},{number=\"41\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"42\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"43\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"44\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"45\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"46\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"47\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"48\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"49\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"50\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"51\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"52\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"53\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"54\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"55\",value=\"vec128 {\\n  v8_bfloat16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_half: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_float: [0x0, 0x0, 0x0, 0x0],\\n  v2_double: [0x0, 0x0],\\n  v16_int8: [0x0 <repeats 16 times>],\\n  v8_int16: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int32: [0x0, 0x0, 0x0, 0x0],\\n  v2_int64: [0x0, 0x0],\\n  uint128: 0x0\\n}\"},{number=\"56\",value=\"0x1f80\"},{number=\"57\",value=\"0x0\"},{number=\"58\",value=\"0x0\"},{number=\"59\",value=\"0x0\"},{number=\"60\",value=\"0x0\"},{number=\"61\",value=\"0x0\"},{number=\"62\",value=\"0x0\"},{number=\"63\",value=\"0x0\"},{number=\"64\",value=\"0x0\"},{number=\"65\",value=\"0x0\"},{number=\"66\",value=\"0x0\"},{number=\"67\",value=\"0x0\"},{number=\"68\",value=\"0x0\"},{number=\"69\",value=\"0x0\"},{number=\"70\",value=\"0x0\"},{number=\"71\",value=\"0x0\"},{number=\"72\",value=\"0x0\"},{number=\"152\",value=\"0x7ffff7ffeaa8\"},{number=\"153\",value=\"0x0\"},{number=\"154\",value=\"0xffffffffffffffff\"},{number=\"155\",value=\"0x50\"},{number=\"156\",value=\"0x50\"},{number=\"157\",value=\"0x0\"},{number=\"158\",value=\"0x40\"},{number=\"159\",value=\"0x1\"},{number=\"160\",value=\"0xa0\"},{number=\"161\",value=\"0x0\"},{number=\"162\",value=\"0x20\"},{number=\"163\",value=\"0xb0\"},{number=\"164\",value=\"0xf8\"},{number=\"165\",value=\"0x8\"},{number=\"166\",value=\"0x46\"},{number=\"167\",value=\"0xc8\"},{number=\"168\",value=\"0x1\"},{number=\"169\",value=\"0x92\"},{number=\"170\",value=\"0x50\"},{number=\"171\",value=\"0xa2\"},{number=\"172\",value=\"0xd5\"},{number=\"173\",value=\"0x0\"},{number=\"174\",value=\"0xdb\"},{number=\"175\",value=\"0xa250\"},{number=\"176\",value=\"0xd550\"},{number=\"177\",value=\"0x0\"},{number=\"178\",value=\"0xdb40\"},{number=\"179\",value=\"0x1\"},{number=\"180\",value=\"0xdda0\"},{number=\"181\",value=\"0x0\"},{number=\"183\",value=\"0xf0b0\"},{number=\"184\",value=\"0xfff8\"},{number=\"185\",value=\"0x8\"},{number=\"186\",value=\"0x246\"},{number=\"187\",value=\"0xd6c8\"},{number=\"188\",value=\"0x1\"},{number=\"189\",value=\"0xa492\"},{number=\"190\",value=\"0xd650\"},{number=\"191\",value=\"0xf7ffa250\"},{number=\"192\",value=\"0xffffd550\"},{number=\"193\",value=\"0x800000\"},{number=\"194\",value=\"0xf7ffdb40\"},{number=\"195\",value=\"0x1\"},{number=\"196\",value=\"0xf7f9dda0\"},{number=\"197\",value=\"0x0\"},{number=\"198\",value=\"0xffffd420\"},{number=\"199\",value=\"0xf7fff0b0\"},{number=\"200\",value=\"0xfffffff8\"},{number=\"201\",value=\"0x8\"},{number=\"202\",value=\"0x246\"},{number=\"203\",value=\"0xffffd6c8\"},{number=\"204\",value=\"0x1\"},{number=\"205\",value=\"0xf7fda492\"},{number=\"206\",value=\"0xffffd650\"},{number=\"207\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v16_half: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_float: [0x0, 0x0, 0xf7fdefc3, 0x7fff, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x7ffff7fdefc3, 0x0, 0x0],\\n  v32_int8: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0xc3, 0xef, 0xfd, 0xf7, 0xff, 0x7f, 0x0 <repeats 18 times>],\\n  v16_int16: [0x0, 0x0, 0x0, 0x0, 0xefc3, 0xf7fd, 0x7fff, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v8_int32: [0x0, 0x0, 0xf7fdefc3, 0x7fff, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x7ffff7fdefc3, 0x0, 0x0],\\n  v2_int128: [0x7ffff7fdefc30000000000000000, 0x0]\\n}\"},{number=\"208\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"209\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"210\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"211\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"212\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"213\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"214\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"215\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"216\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"217\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"218\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"219\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"220\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"221\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"},{number=\"222\",value=\"builtin_type_vec256i {\\n  v16_bfloat16: [0x0 <repeats 16 times>],\\n  v16_half: [0x0 <repeats 16 times>],\\n  v8_float: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_double: [0x0, 0x0, 0x0, 0x0],\\n  v32_int8: [0x0 <repeats 32 times>],\\n  v16_int16: [0x0 <repeats 16 times>],\\n  v8_int32: [0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0],\\n  v4_int64: [0x0, 0x0, 0x0, 0x0],\\n  v2_int128: [0x0, 0x0]\\n}\"}]");
+        GdbMiStateResponse.decode(Optional.of("13"), lexer);
     }
-}
\ No newline at end of file
+
+    @org.junit.jupiter.api.Test
+    void decodeEscapes() {
+        var lexer = new GdbMiLexer("*stopped,reason=\"signal-received\",msg=\"a\\tb\\\"c\\\\\\101\",empty=[],values=[\"1\",\"2\"],frame={}");
+        var response = GdbMiStateResponse.decode(Optional.empty(), lexer);
+        assertEquals('*', response.getMode());
+        assertEquals("stopped", response.getKlass());
+        assertEquals("a\tb\"c\\A", response.getAttributes().getString("msg"));
+        assertEquals(List.of("1", "2"), response.getAttributes().getList("values").toStringList());
+        assertFalse(lexer.hasNext());
+    }
+
+    @org.junit.jupiter.api.Test
+    void typedAccessors() {
+        var lexer = new GdbMiLexer("^done,stack=[frame={level=\"0\",addr=\"0x00007ffff7f9dda4\"},frame={level=\"1\",addr=\"0x00007ffff7f9de00\"}],threads=[],bkpt={number=\"1\",thread-groups=[\"i1\"]}");
+        var attributes = GdbMiStateResponse.decode(Optional.of("3"), lexer).getAttributes();
+        var stack = attributes.getResultList("stack");
+        assertEquals(2, stack.size());
+        assertEquals("frame", stack.getName(1));
+        assertEquals(0x00007ffff7f9de00L, stack.getTuple(1).getLong("addr").getAsLong());
+        assertEquals(1, stack.getTuple(1).getLong("level").getAsLong());
+        assertTrue(stack.getTuple(0).getLong("line").isEmpty());
+        assertEquals(GdbMiResultList.EMPTY, attributes.getResultList("threads")); // "[]"
+        assertEquals(List.of("i1"), attributes.getTuple("bkpt").getList("thread-groups").toStringList());
+        assertNull(attributes.getString("nonexistent"));
+        assertThrows(ClassCastException.class, () -> attributes.getString("bkpt"));
+        assertEquals("{number=1, thread-groups=[i1]}", attributes.getTuple("bkpt").toString());
+    }
+
+    @org.junit.jupiter.api.Test
+    void decodeRawBytes() {
+        // U+00E9 once as raw UTF-8 and once as octal escapes (as printed by GDB with "set charset ASCII")
+        var bytes = "~\"\u00e9 \\303\\251\\n\"".getBytes(StandardCharsets.UTF_8);
+        var lexer = new GdbMiLexer(new GdbMiByteSequence(bytes, 0, bytes.length));
+        lexer.expect('~');
+        assertEquals("\u00e9 \u00e9\n", GdbMiProducer.parseCString(lexer));
+        assertFalse(lexer.hasNext());
+    }
+
+    @org.junit.jupiter.api.Test
+    void decodeLazily() {
+        var text = "^done,register-values=[{number=\"0\",value=\"0x1\"},{number=\"1\",value=\"{v2_int64 = {0x0, 0x0}}\"}],msg=\"a]\\\"}\",frame={level=\"0\"}";
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        var lazy = GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer(new GdbMiByteSequence(bytes, 0, bytes.length)), true);
+        Arrays.fill(bytes, (byte) '?'); // like the reader does with its buffer
+        var eager = GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer(text), false);
+        assertEquals("a]\"}", lazy.getAttributes().getString("msg"));
+        assertEquals("{v2_int64 = {0x0, 0x0}}", lazy.getAttributes().getList("register-values").getTuple(1).getString("value"));
+        assertEquals(eager.getAttributes(), lazy.getAttributes());
+        assertEquals(eager.getAttributes().toString(), lazy.getAttributes().toString());
+    }
+
+    @org.junit.jupiter.api.Test
+    void decodeColumnar() {
+        var text = "^done,stack=[frame={level=\"0\",addr=\"0x00007ffff7f9dda4\",func=\"main\"},frame={level=\"1\",addr=\"0x00007ffff7f9de00\",func=\"f\"},frame={level=\"2\",addr=\"0x00007ffff7f9de08\",func=\"g\"},frame={level=\"3\",addr=\"0x00007ffff7f9de10\",func=\"h\"}],register-values=[{number=\"0\",value=\"0x1\"},{number=\"1\",value=\"0x0\"},{number=\"2\",value=\"-1\"},{number=\"3\",value=\"007\"}],mixed=[{a=\"1\"},{a=\"2\"},{a=\"3\"},{b=\"4\"}]";
+        var attributes = GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer(text), false).getAttributes();
+        var stack = attributes.getResultList("stack");
+        assertTrue(stack.isColumnar());
+        assertEquals("frame", stack.getName(3));
+        assertEquals(0x00007ffff7f9de00L, stack.getRow(1).getLong("addr").getAsLong());
+        assertEquals("0x00007ffff7f9de00", stack.getRow(1).getString("addr"));
+        assertEquals("h", stack.getRow(3).getString("func"));
+        assertNull(stack.getRow(3).getString("file"));
+        var registers = attributes.getList("register-values");
+        assertTrue(registers.isColumnar());
+        assertEquals("007", registers.getRow(3).getString("value"));
+        assertEquals(2, registers.getRow(2).getLong("number").getAsLong());
+        assertFalse(attributes.getList("mixed").isColumnar());
+        // Same as without columns
+        var eager = new GdbMiTuple(new String[]{"level", "addr", "func"}, new GdbMiValue[]{new GdbMiConst("2"), new GdbMiConst("0x00007ffff7f9de08"), new GdbMiConst("g")});
+        assertEquals(eager, stack.getTuple(2));
+        assertEquals(eager.toString(), stack.getRow(2).toString());
+    }
+
+    @org.junit.jupiter.api.Test
+    void internPool() {
+        var pool = new GdbMiInternPool(64);
+        var text = "=breakpoint-modified,bkpt={number=\"1\",enabled=\"y\",fullname=\"/home/dannym/src/main.rs\",thread-groups=[\"i1\"],custom-key=\"y\"}";
+        var first = GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer(text).setInternPool(pool)).getAttributes().getTuple("bkpt");
+        var second = GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer(text).setInternPool(pool)).getAttributes().getTuple("bkpt");
+        assertEquals(first, second);
+        assertSame(first.getString("fullname"), second.getString("fullname"));
+        assertSame(first.getString("enabled"), second.getString("custom-key"));
+        assertSame(first.getList("thread-groups").getString(0), second.getList("thread-groups").getString(0));
+        assertSame(first.getName(4), second.getName(4)); // not a known key
+        assertSame("fullname", first.getName(2));
+        assertSame("number", GdbMiInternPool.lookUpKey("{number=", 1, 7));
+        assertNull(GdbMiInternPool.lookUpKey("numbers", 0, 7));
+    }
+}
@@ -0,0 +1,40 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import com.friendly_machines.intellij.plugins.ideanative2debugger.ProjectSettingsState;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How long gdb may take to answer a command (see ProjectSettingsState for the actual timeouts).
+ * Loading the symbols of a big executable takes far longer than asking for the threads.
+ */
+public enum GdbMiTimeoutClass {
+    FAST_QUERY,
+    SYMBOL_LOAD,
+    EXEC,
+    MEMORY;
+
+    @NotNull
+    public static GdbMiTimeoutClass of(@NotNull String operation) {
+        if (operation.startsWith("-exec-")) {
+            return EXEC;
+        } else if (operation.startsWith("-file-") || operation.startsWith("-symbol-") || operation.startsWith("-target-")) {
+            // Note: -target-select loads the symbols of the target, too.
+            return SYMBOL_LOAD;
+        } else if (operation.startsWith("-data-read-memory") || operation.startsWith("-data-write-memory") || operation.equals("-data-disassemble")) {
+            return MEMORY;
+        } else {
+            return FAST_QUERY;
+        }
+    }
+
+    public long getTimeoutMillis(@NotNull ProjectSettingsState settings) {
+        return switch (this) {
+            case FAST_QUERY -> settings.fastQueryTimeoutMillis;
+            case SYMBOL_LOAD -> settings.symbolLoadTimeoutMillis;
+            case EXEC -> settings.execTimeoutMillis;
+            case MEMORY -> settings.memoryTimeoutMillis;
+        };
+    }
+}
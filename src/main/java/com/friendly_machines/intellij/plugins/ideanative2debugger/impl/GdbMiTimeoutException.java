@@ -0,0 +1,15 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import java.io.InterruptedIOException;
+
+/**
+ * gdb did not answer a command in time (see GdbMiTimeoutClass).
+ * gdb itself keeps running; if the answer still arrives, it is dropped.
+ */
+public class GdbMiTimeoutException extends InterruptedIOException {
+    public GdbMiTimeoutException(String message) {
+        super(message);
+    }
+}
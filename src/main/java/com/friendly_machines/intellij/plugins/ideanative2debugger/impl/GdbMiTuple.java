@@ -0,0 +1,122 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * tuple ==> "{}" | "{" result ( "," result )* "}"
+ * Also used for the results of a whole record.
+ * Names and values are kept in two flat arrays instead of a HashMap.
+ * A tuple can also be decoded lazily (see GdbMiProducer.skimRecordResults). Then a value is only parsed the first time it is accessed.
+ */
+public final class GdbMiTuple implements GdbMiValue, GdbMiResults {
+    public static final GdbMiTuple EMPTY = new GdbMiTuple(new String[0], new GdbMiValue[0]);
+
+    private final String[] myNames;
+    private final GdbMiValue[] myValues;
+
+    // Only for lazily decoded tuples: the text and the start and end of each (not yet parsed) value in it.
+    @Nullable
+    private final CharSequence myText;
+    private final int @Nullable [] myValueBounds;
+
+    /// Note: Takes ownership of the arrays.
+    public GdbMiTuple(@NotNull String @NotNull [] names, @NotNull GdbMiValue @NotNull [] values) {
+        assert names.length == values.length;
+        myNames = names;
+        myValues = values;
+        myText = null;
+        myValueBounds = null;
+    }
+
+    /// Lazily decoded tuple. Note: Takes ownership of the arrays.
+    GdbMiTuple(@NotNull String @NotNull [] names, @NotNull CharSequence text, int @NotNull [] valueBounds) {
+        assert 2 * names.length == valueBounds.length;
+        myNames = names;
+        myValues = new GdbMiValue[names.length];
+        myText = text;
+        myValueBounds = valueBounds;
+    }
+
+    @Override
+    public int size() {
+        return myNames.length;
+    }
+
+    @Override
+    public @NotNull String getName(int index) {
+        return myNames[index];
+    }
+
+    @Override
+    public @NotNull GdbMiValue getValue(int index) {
+        var value = myValues[index];
+        if (value == null) {
+            // Note: Not synchronized. If two threads get here at the same time, both parse the same value.
+            value = GdbMiProducer.parseValue(new GdbMiLexer(myText, myValueBounds[2 * index], myValueBounds[2 * index + 1]));
+            myValues[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public long estimateSize() {
+        long result = 48 + 16L * myNames.length; // names are usually interned, so they're not counted
+        if (myText != null) { // whatever was not parsed yet is still text
+            return result + GdbMiValue.estimateSize(myText) + 4L * myValueBounds.length;
+        }
+        for (var value : myValues) {
+            result += value.estimateSize();
+        }
+        return result;
+    }
+
+    @NotNull
+    private GdbMiValue[] getValues() {
+        if (myText != null) {
+            for (int i = 0; i < myValues.length; ++i) {
+                getValue(i);
+            }
+        }
+        return myValues;
+    }
+
+    /// Returns a copy of this tuple where NAME is set to VALUE.
+    @NotNull
+    public GdbMiTuple with(@NotNull String name, @NotNull GdbMiValue value) {
+        int index = indexOf(name);
+        if (index != -1) {
+            var values = getValues().clone();
+            values[index] = value;
+            return new GdbMiTuple(myNames, values);
+        } else {
+            var names = Arrays.copyOf(myNames, myNames.length + 1);
+            var values = Arrays.copyOf(getValues(), myValues.length + 1);
+            names[myNames.length] = name;
+            values[myValues.length] = value;
+            return new GdbMiTuple(names, values);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GdbMiTuple other && Arrays.equals(myNames, other.myNames) && Arrays.equals(getValues(), other.getValues());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(myNames) + Arrays.hashCode(getValues());
+    }
+
+    @Override
+    public String toString() {
+        var result = new StringBuilder("{");
+        GdbMiResults.appendResults(result, this);
+        result.append('}');
+        return result.toString();
+    }
+}
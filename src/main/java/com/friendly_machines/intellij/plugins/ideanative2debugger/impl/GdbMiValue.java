@@ -0,0 +1,20 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A value in a GDB/MI record.
+ * value ==> const | tuple | list
+ * Lists whose items are "name=value" results are GdbMiResultLists. An empty list "[]" is always a plain GdbMiList.
+ */
+public sealed interface GdbMiValue permits GdbMiConst, GdbMiTuple, GdbMiList {
+    /// Roughly how many bytes of memory this value takes (for bounding caches; see GdbMiResponseCache).
+    long estimateSize();
+
+    /// Roughly how many bytes of memory TEXT takes.
+    static long estimateSize(@NotNull CharSequence text) {
+        return 40 + 2L * text.length();
+    }
+}
@@ -1,26 +1,55 @@
 package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
 
+import com.friendly_machines.intellij.plugins.ideanative2debugger.ProjectSettingsState;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.process.OSProcessHandler;
+import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.Key;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.io.BaseDataReader;
 import com.intellij.util.io.BaseOutputReader;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public class GdbOsProcessHandler extends OSProcessHandler {
     private final GdbMiProducer myProducer;
+    private final GdbMiInternPool myInternPool = new GdbMiInternPool(4096);
+    private final boolean myRawOutput;
+    // The pty of gdb's "new-ui mi3" channel, or null if MI goes through gdb's stdin and stdout.
+    @Nullable
+    private final GdbPty myMiPty;
 
     public GdbOsProcessHandler(@NotNull GeneralCommandLine commandLine) throws ExecutionException {
+        this(commandLine, null);
+    }
+
+    /**
+     * @param miPty if not null, the pty of a separate MI channel (see RunProfileState). Then stdin and stdout of gdb are its CLI, which is just shown on the console.
+     */
+    public GdbOsProcessHandler(@NotNull GeneralCommandLine commandLine, @Nullable GdbPty miPty) throws ExecutionException {
         super(commandLine);
-        myProducer = new GdbMiProducer(); // TODO: clean up if not needed anymore
+        myProducer = new GdbMiProducer(AppExecutorUtil.getAppScheduledExecutorService()); // TODO: clean up if not needed anymore
+        myRawOutput = ProjectSettingsState.getInstance().gdbRawOutputReader;
+        myMiPty = miPty;
+    }
+
+    /// Where MI commands are written to.
+    @NotNull
+    public OutputStream getMiInput() {
+        return myMiPty != null ? myMiPty.getOutputStream() : getProcessInput();
     }
 
     @Override
@@ -59,16 +88,46 @@ public class GdbOsProcessHandler extends OSProcessHandler {
         };
     }
 
-    public GdbMiStateResponse readResponse() throws InterruptedException {
-        var result = myProducer.consume();
-        if (result == null) { // timeout
-            this.destroyProcess();
-            throw new RuntimeException("timeout while waiting for response from GDB/MI");
-        } else {
-            return result;
+    /// Registers a request with TOKEN, which fails if there is no response within the timeout for TIMEOUT_CLASS; see GdbMiProducer.expect.
+    @NotNull
+    public CompletableFuture<GdbMiStateResponse> expectResponse(@NotNull String token, @NotNull GdbMiTimeoutClass timeoutClass) {
+        return myProducer.expect(token, timeoutClass.getTimeoutMillis(ProjectSettingsState.getInstance()));
+    }
+
+    /// Forgets the request with TOKEN, which could not be written to gdb after all; see GdbMiProducer.forgetUnsent.
+    public void forgetUnsent(@NotNull String token) {
+        myProducer.forgetUnsent(token);
+    }
+
+    /**
+     * Waits for RESPONSE (see expectResponse).
+     * If the response doesn't arrive in time (GdbMiTimeoutException), or someone cancels RESPONSE, or the waiting thread is interrupted, gdb keeps running--only this request is given up.
+     */
+    public GdbMiStateResponse readResponse(@NotNull CompletableFuture<GdbMiStateResponse> response) throws IOException, InterruptedException {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(false);
+            throw e;
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("request to GDB/MI was cancelled");
+        } catch (java.util.concurrent.ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) { // for example GdbMiTimeoutException
+                throw cause;
+            }
+            throw new IOException(e.getCause());
         }
     }
 
+    @Override
+    protected void onOSProcessTerminated(int exitCode) {
+        myProducer.failAll(new IOException("gdb exited with code " + exitCode));
+        if (myMiPty != null) {
+            myMiPty.close();
+        }
+        super.onOSProcessTerminated(exitCode);
+    }
+
     @Nullable
     public Charset getCharset() {
         return StandardCharsets.UTF_8;
@@ -76,6 +135,9 @@ public class GdbOsProcessHandler extends OSProcessHandler {
 
     // This is here so we don't have an ordering problem with the startNotified events
     public void startNotify() {
+        if (myMiPty != null) {
+            new RawOutputReader(myMiPty.getInputStream(), "MI channel of gdb");
+        }
         super.startNotify();
         var debugProcess = (DebugProcess) GdbOsProcessHandler.this.getUserData(DebugProcess.DEBUG_PROCESS_KEY);
         if (debugProcess == null) {
@@ -92,71 +154,128 @@ public class GdbOsProcessHandler extends OSProcessHandler {
     }
 
     /**
-     * Don't throw any exception to the caller - it would break the whole communication channel to the process/GDB.
-     * @param text
-     * @param outputType
+     * Reads the raw bytes of gdb's stdout (or of its MI channel) and parses MI records straight from them, without decoding every line into a String first.
+     * Runs in a thread of its own (not in the application pool, where it could wait behind other tasks), started with the process:
+     * every response that anyone waits for passes through here.
      */
+    private class RawOutputReader extends BaseDataReader {
+        private final GdbMiLineReader myLineReader;
+        private final GdbMiLexer myLexer = new GdbMiLexer("").setInternPool(myInternPool);
+
+        RawOutputReader(@NotNull InputStream input, @NotNull String presentableName) {
+            super(SleepingPolicy.BLOCKING);
+            myLineReader = new GdbMiLineReader(input);
+            start(presentableName);
+        }
+
+        private void handleLine(byte @NotNull [] buffer, int start, int end) {
+            processLine(myLexer.reset(new GdbMiByteSequence(buffer, start, end - start)), true);
+        }
+
+        @Override
+        protected boolean readAvailable() throws IOException {
+            // Blocks until gdb closes its stdout (or the pty is closed).
+            myLineReader.run(this::handleLine);
+            return true;
+        }
+
+        @Override
+        protected void close() throws IOException {
+            myLineReader.close();
+        }
+
+        @Override
+        protected @NotNull Future<?> executeOnPooledThread(@NotNull Runnable runnable) {
+            var task = new FutureTask<>(runnable, null);
+            var thread = new Thread(task, "gdb MI reader");
+            thread.setDaemon(true);
+            thread.start();
+            return task;
+        }
+    }
+
     @Override
-    public void notifyTextAvailable(@NotNull String text, @NotNull Key outputType) {
-        // Note: Runs in "output stream of gdb" thread.
-//        println(Thread.currentThread().getId() + Thread.currentThread().getName() + " notifyTextAvailable: " + text);
-        var scanner = new Scanner(text);
-        scanner.useDelimiter(""); // character by character mode
-        var token = GdbMiProducer.parseToken(scanner);
-        if (scanner.hasNext("\\^")) { // sync response
-            if (token.isPresent()) {
+    protected @NotNull BaseDataReader createOutputDataReader() {
+        if (myRawOutput && myMiPty == null) {
+            return new RawOutputReader(getProcess().getInputStream(), "raw output stream of gdb");
+        } else {
+            return super.createOutputDataReader();
+        }
+    }
+
+    private void reportLater(@NotNull String errMsg) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            var debugProcess = (DebugProcess) GdbOsProcessHandler.this.getUserData(DebugProcess.DEBUG_PROCESS_KEY);
+            if (debugProcess == null) {
+                // Pech gehabt.
+                System.err.println(errMsg);
+                return;
+            }
+            debugProcess.reportError(errMsg);
+        });
+    }
+
+    /**
+     * Handles one line of gdb output.
+     * Runs in the reader thread (RawOutputReader, or the platform's "output stream of gdb" thread). LEXER is only valid during the call--so everything that is needed later is parsed right here.
+     * @param raw whether the line came from RawOutputReader (and so was not shown on the console yet)
+     */
+    private void processLine(@NotNull GdbMiLexer lexer, boolean raw) {
+        final int lineStart = lexer.getPosition();
+        var token = GdbMiProducer.parseToken(lexer);
+        switch (lexer.peek()) {
+            case '^' -> { // sync response
+                GdbMiStateResponse item;
                 try {
-                    var item = GdbMiStateResponse.decode(token, scanner);
-                    myProducer.produce(item);
+                    item = GdbMiStateResponse.decode(token, lexer);
                 } catch (RuntimeException e) { // InputMismatchException
                     e.printStackTrace();
-                    // Put an error response into the queue--otherwise the caller would wait for an answer indefinitely.
-                    var item2 = GdbMiStateResponse.errorResponse(token, '^', "error", e.toString());
-                    try {
-                        myProducer.produce(item2);
-                    } catch (InterruptedException ex) {
-                        //ex.printStackTrace();
-                        Thread.currentThread().interrupt();
-                        return;
-                    }
-                } catch (InterruptedException e) {
-                    //e.printStackTrace();
-                    Thread.currentThread().interrupt();
-                    return;
+                    // Answer with an error response--otherwise the caller would wait for an answer indefinitely.
+                    item = GdbMiStateResponse.errorResponse(token, '^', "error", e.toString());
+                }
+                if (!myProducer.produce(item)) {
+                    // a sync response we didn't wait for
+                    reportLater("ignored unknown sync response: " + lexer.decode(lineStart, lexer.getEnd()));
                 }
-            } else {
-                // a sync response we didn't wait for
-                ApplicationManager.getApplication().invokeLater(() -> {
-                    var debugProcess = (DebugProcess) GdbOsProcessHandler.this.getUserData(DebugProcess.DEBUG_PROCESS_KEY);
-                    var errMsg = "ignored unknown sync response: " + text;
-                    if (debugProcess == null) {
-                        // Pech gehabt.
-                        System.err.println(errMsg);
-                        return;
-                    }
-                    debugProcess.reportError(errMsg);
-                });
             }
-
-            // For async response handling, see GdbMiFilter
-        } else {
-            // Move to UI thread.
-            ApplicationManager.getApplication().invokeLater(() -> {
+            case '*', '+', '=', '~', '@', '&' -> { // async response; see GdbMiFilter
+                if (lexer.peekIs('+')) {
+                    myProducer.noteProgress();
+                }
                 var debugProcess = (DebugProcess) GdbOsProcessHandler.this.getUserData(DebugProcess.DEBUG_PROCESS_KEY);
                 if (debugProcess == null) {
-                    // too late
+                    // too early or too late
                     return;
                 }
                 try {
-                    debugProcess.processAsync(token, scanner);
-                } catch (IOException e) {
+                    debugProcess.processAsync(token, lexer);
+                } catch (RuntimeException e) { // InputMismatchException
                     e.printStackTrace();
-                    debugProcess.getSession().reportError(e.toString());
-                } catch (InterruptedException e) {
-                    //throw new RuntimeException(e);
-                    // just stop
+                    reportLater("could not parse GDB/MI record: " + lexer.decode(lineStart, lexer.getEnd()));
+                }
+            }
+            default -> { // our echo, the "(gdb)" prompt, or output of the debugged program
+                if (raw) {
+                    var text = lexer.decode(lineStart, lexer.getEnd());
+                    if (!text.startsWith("(gdb)")) {
+                        super.notifyTextAvailable(text + "\n", ProcessOutputTypes.STDOUT);
+                    }
                 }
-            });
+            }
+        }
+    }
+
+    /**
+     * Don't throw any exception to the caller - it would break the whole communication channel to the process/GDB.
+     * @param text
+     * @param outputType
+     */
+    @Override
+    public void notifyTextAvailable(@NotNull String text, @NotNull Key outputType) {
+        // Note: Runs in "output stream of gdb" thread.
+//        println(Thread.currentThread().getId() + Thread.currentThread().getName() + " notifyTextAvailable: " + text);
+        if (outputType == ProcessOutputTypes.STDOUT && myMiPty == null) { // otherwise, that's gdb's CLI
+            processLine(new GdbMiLexer(text).setInternPool(myInternPool), false);
         }
 //        println(Thread.currentThread().getId() + Thread.currentThread().getName() +"done notify");
 
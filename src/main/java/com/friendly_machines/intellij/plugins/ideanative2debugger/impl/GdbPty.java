@@ -0,0 +1,240 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.sun.jna.Library;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A pseudo terminal (Unix only) that gdb opens by name--for a UI of its own ("new-ui") or as the terminal of the debuggee ("-inferior-tty-set").
+ * We read and write the master side. We also keep the slave side open ourselves: that way, reading doesn't fail while nobody else has it open yet
+ * (or anymore, for example between two runs of the debuggee). Reading ends once the pty is closed.
+ */
+public class GdbPty implements Closeable {
+    private interface LibC extends Library {
+        LibC INSTANCE = Native.load("c", LibC.class);
+
+        int posix_openpt(int flags);
+
+        int grantpt(int fd);
+
+        int unlockpt(int fd);
+
+        String ptsname(int fd);
+
+        int open(String path, int flags);
+
+        int close(int fd);
+
+        NativeLong read(int fd, Pointer buffer, NativeLong count);
+
+        NativeLong write(int fd, Pointer buffer, NativeLong count);
+
+        int poll(Pointer fds, int count, int timeoutMillis);
+
+        int tcgetattr(int fd, Pointer termios);
+
+        int tcsetattr(int fd, int optionalActions, Pointer termios);
+
+        void cfmakeraw(Pointer termios);
+    }
+
+    private static final int O_RDWR = 2;
+    private static final int EINTR = 4;
+    private static final int EIO = 5;
+    private static final int POLLIN = 1;
+    private static final int TCSANOW = 0;
+    // How long a read waits at most before it checks whether the pty was closed.
+    private static final int ourPollMillis = 200;
+    // The size of the native buffer of each stream. Reads and writes go through it, so they don't allocate (JNA would copy a byte[] into native memory on each call anyway).
+    private static final int ourBufferSize = 64 * 1024;
+
+    private final int myMasterFd;
+    private final int mySlaveFd;
+    private final String mySlaveName;
+    private final AtomicBoolean myClosed = new AtomicBoolean();
+
+    private GdbPty(int masterFd, int slaveFd, @NotNull String slaveName) {
+        myMasterFd = masterFd;
+        mySlaveFd = slaveFd;
+        mySlaveName = slaveName;
+    }
+
+    private static int getNoCttyFlag() {
+        return Platform.isMac() ? 0x20000 : 0400;
+    }
+
+    /**
+     * Allocates a new pty in raw mode: no echo, and no translation of line terminators.
+     * @throws IOException if that's not possible (for example on Windows)
+     */
+    @NotNull
+    public static GdbPty open() throws IOException {
+        if (Platform.isWindows()) {
+            throw new IOException("pseudo terminals are not supported on Windows");
+        }
+        final LibC libc;
+        try {
+            libc = LibC.INSTANCE;
+        } catch (LinkageError e) {
+            throw new IOException("could not load libc", e);
+        }
+        int masterFd = libc.posix_openpt(O_RDWR | getNoCttyFlag());
+        if (masterFd < 0) {
+            throw new IOException("posix_openpt failed with errno " + Native.getLastError());
+        }
+        int slaveFd = -1;
+        try {
+            if (libc.grantpt(masterFd) != 0 || libc.unlockpt(masterFd) != 0) {
+                throw new IOException("grantpt/unlockpt failed with errno " + Native.getLastError());
+            }
+            String slaveName = libc.ptsname(masterFd);
+            if (slaveName == null) {
+                throw new IOException("ptsname failed with errno " + Native.getLastError());
+            }
+            slaveFd = libc.open(slaveName, O_RDWR | getNoCttyFlag());
+            if (slaveFd < 0) {
+                throw new IOException("could not open " + slaveName + ": errno " + Native.getLastError());
+            }
+            var termios = new Memory(256); // larger than struct termios on any platform
+            if (libc.tcgetattr(slaveFd, termios) != 0) {
+                throw new IOException("tcgetattr failed with errno " + Native.getLastError());
+            }
+            libc.cfmakeraw(termios);
+            if (libc.tcsetattr(slaveFd, TCSANOW, termios) != 0) {
+                throw new IOException("tcsetattr failed with errno " + Native.getLastError());
+            }
+            return new GdbPty(masterFd, slaveFd, slaveName);
+        } catch (IOException | RuntimeException e) {
+            if (slaveFd >= 0) {
+                libc.close(slaveFd);
+            }
+            libc.close(masterFd);
+            throw e;
+        }
+    }
+
+    /// The name of the slave side, for example "/dev/pts/3".
+    @NotNull
+    public String getSlaveName() {
+        return mySlaveName;
+    }
+
+    /// What gdb (or the debuggee) writes to the pty. Blocks until something is available; returns end of stream once the pty is closed.
+    @NotNull
+    public InputStream getInputStream() {
+        return new InputStream() {
+            private final Memory myPollFd = new Memory(8); // struct pollfd
+            private final Memory myBuffer = new Memory(ourBufferSize);
+
+            @Override
+            public int read() throws IOException {
+                var buffer = new byte[1];
+                return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte @NotNull [] buffer, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                final var libc = LibC.INSTANCE;
+                while (!myClosed.get()) {
+                    myPollFd.setInt(0, myMasterFd);
+                    myPollFd.setShort(4, (short) POLLIN);
+                    myPollFd.setShort(6, (short) 0);
+                    int ready = libc.poll(myPollFd, 1, ourPollMillis);
+                    if (ready == 0) {
+                        continue;
+                    }
+                    if (ready < 0) {
+                        if (Native.getLastError() == EINTR) {
+                            continue;
+                        }
+                        throw new IOException("poll failed with errno " + Native.getLastError());
+                    }
+                    int count = libc.read(myMasterFd, myBuffer, new NativeLong(Math.min(length, ourBufferSize))).intValue();
+                    if (count < 0) {
+                        int errno = Native.getLastError();
+                        if (errno == EINTR) {
+                            continue;
+                        }
+                        if (errno == EIO) { // hangup
+                            return -1;
+                        }
+                        throw new IOException("read failed with errno " + errno);
+                    }
+                    if (count == 0) {
+                        return -1;
+                    }
+                    myBuffer.read(0, buffer, offset, count);
+                    return count;
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                GdbPty.this.close();
+            }
+        };
+    }
+
+    /// What gdb (or the debuggee) reads from the pty.
+    @NotNull
+    public OutputStream getOutputStream() {
+        return new OutputStream() {
+            private final Memory myBuffer = new Memory(ourBufferSize);
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public synchronized void write(byte @NotNull [] buffer, int offset, int length) throws IOException {
+                final var libc = LibC.INSTANCE;
+                while (length > 0) {
+                    if (myClosed.get()) {
+                        throw new IOException("pty is closed");
+                    }
+                    int chunkLength = Math.min(length, ourBufferSize);
+                    myBuffer.write(0, buffer, offset, chunkLength);
+                    int count = libc.write(myMasterFd, myBuffer, new NativeLong(chunkLength)).intValue();
+                    if (count < 0) {
+                        int errno = Native.getLastError();
+                        if (errno == EINTR) {
+                            continue;
+                        }
+                        throw new IOException("write failed with errno " + errno);
+                    }
+                    offset += count;
+                    length -= count;
+                }
+            }
+        };
+    }
+
+    /// Closes both sides. A read that is in progress returns end of stream shortly after.
+    @Override
+    public void close() {
+        if (myClosed.compareAndSet(false, true)) {
+            LibC.INSTANCE.close(mySlaveFd);
+            // Closing the master right away could have another pty get its number while a read still uses it; the reads poll with a timeout anyway.
+            AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> LibC.INSTANCE.close(myMasterFd), 2L * ourPollMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The threads of the debuggee, kept up to date from gdb's notifications ("=thread-created", "=thread-exited", "=thread-group-exited", "*running", "*stopped")
+ * instead of asking for all of them ("-thread-info") on every stop--which, with thousands of threads, is megabytes of output each time.
+ * Updated in the thread that reads gdb's output, before the records are dispatched (see GdbMiFilter.processAsync); so it's never behind what the UI sees.
+ */
+public class ThreadRegistry {
+    /**
+     * @param groupId the thread group (inferior), like "i1"; null if not known
+     * @param name what gdb calls the thread ("target-id" and "details" of -thread-info), or null if not known yet
+     */
+    public record Entry(@NotNull String id, @Nullable String groupId, @Nullable String name, boolean running) {
+        @NotNull
+        public String getDisplayName() {
+            return (name != null ? name : "Thread " + id) + (running ? ": running" : ": stopped");
+        }
+    }
+
+    // Guarded by this. In the order in which the threads were created.
+    private final LinkedHashMap<String, Entry> myThreads = new LinkedHashMap<>();
+    // Guarded by this. The threads whose names were asked for already (see claimUnnamed).
+    private final HashSet<String> myNamesAsked = new HashSet<>();
+
+    /// Updates the registry from the async RECORD, if it's about threads.
+    public synchronized void update(@NotNull GdbMiStateResponse record) throws ClassCastException {
+        var attributes = record.getAttributes();
+        switch (record.getMode()) {
+            case '=' -> {
+                switch (record.getKlass()) {
+                    case "thread-created" -> {
+                        var id = attributes.getString("id");
+                        if (id != null) {
+                            myThreads.put(id, new Entry(id, attributes.getString("group-id"), null, false));
+                        }
+                    }
+                    case "thread-exited" -> {
+                        var id = attributes.getString("id");
+                        if (id != null) {
+                            myThreads.remove(id);
+                        }
+                    }
+                    case "thread-group-exited", "thread-group-removed" -> {
+                        var groupId = attributes.getString("id");
+                        if (groupId != null) {
+                            myThreads.values().removeIf(entry -> groupId.equals(entry.groupId()));
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+            case '*' -> {
+                switch (record.getKlass()) {
+                    case "running" -> setRunning(attributes.get("thread-id"), true);
+                    case "stopped" -> {
+                        var stoppedThreads = attributes.get("stopped-threads");
+                        setRunning(stoppedThreads != null ? stoppedThreads : attributes.get("thread-id"), false);
+                    }
+                    default -> {
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /// IDS is "all", a thread id, or a list of thread ids (as in "*running" and "*stopped").
+    private void setRunning(@Nullable GdbMiValue ids, boolean running) {
+        if (ids instanceof GdbMiConst id) {
+            if ("all".equals(id.getValue())) {
+                myThreads.replaceAll((key, entry) -> new Entry(key, entry.groupId(), entry.name(), running));
+            } else {
+                myThreads.computeIfPresent(id.getValue(), (key, entry) -> new Entry(key, entry.groupId(), entry.name(), running));
+            }
+        } else if (ids instanceof GdbMiList list) {
+            for (var item : list) {
+                setRunning(item, running);
+            }
+        }
+    }
+
+    /// Updates the registry from the "threads" of a "-thread-info" response (for all threads, or for some); adds the threads that it didn't know yet.
+    public synchronized void updateFromThreadInfo(@NotNull GdbMiList threads) throws ClassCastException {
+        for (var item : threads) {
+            var thread = (GdbMiTuple) item;
+            var id = thread.getString("id");
+            if (id == null) {
+                continue;
+            }
+            String name = thread.getString("target-id", id);
+            if (thread.containsKey("details")) {
+                name = name + "; " + thread.get("details");
+            }
+            var previous = myThreads.get(id);
+            myThreads.put(id, new Entry(id, previous != null ? previous.groupId() : null, name, "running".equals(thread.getString("state"))));
+        }
+    }
+
+    /**
+     * Returns the threads that have no name yet and weren't returned by a previous call--so that each of them is asked about ("-thread-info ID") once.
+     * The notifications only tell the ids; and -thread-info for all threads is what this class is there to avoid.
+     */
+    @NotNull
+    public synchronized List<String> claimUnnamed() {
+        myNamesAsked.retainAll(myThreads.keySet());
+        var result = new ArrayList<String>();
+        for (var entry : myThreads.values()) {
+            if (entry.name() == null && myNamesAsked.add(entry.id())) {
+                result.add(entry.id());
+            }
+        }
+        return result;
+    }
+
+    /// Makes claimUnnamed return thread ID again, because asking about it didn't work out.
+    public synchronized void unclaim(@NotNull String id) {
+        myNamesAsked.remove(id);
+    }
+
+    @Nullable
+    public synchronized Entry get(@NotNull String id) {
+        return myThreads.get(id);
+    }
+
+    /// A snapshot of all the threads, in the order in which they were created.
+    @NotNull
+    public synchronized List<Entry> getThreads() {
+        return new ArrayList<>(myThreads.values());
+    }
+
+    public synchronized int size() {
+        return myThreads.size();
+    }
+}
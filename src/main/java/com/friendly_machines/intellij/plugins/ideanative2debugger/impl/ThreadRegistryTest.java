@@ -0,0 +1,42 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadRegistryTest {
+    @org.junit.jupiter.api.Test
+    void threadRegistry() {
+        var registry = new ThreadRegistry();
+        for (var line : new String[] {
+                "=thread-group-started,id=\"i1\",pid=\"42\"",
+                "=thread-created,id=\"1\",group-id=\"i1\"",
+                "=thread-created,id=\"2\",group-id=\"i1\"",
+                "=thread-created,id=\"3\",group-id=\"i1\"",
+                "*running,thread-id=\"all\"",
+                "=thread-exited,id=\"2\",group-id=\"i1\"",
+                "*stopped,reason=\"signal-received\",thread-id=\"3\",stopped-threads=[\"3\"]",
+        }) {
+            registry.update(GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer(line)));
+        }
+        assertEquals(List.of("1", "3"), registry.getThreads().stream().map(ThreadRegistry.Entry::id).toList());
+        assertTrue(registry.get("1").running());
+        assertFalse(registry.get("3").running());
+        assertEquals("Thread 3: stopped", registry.get("3").getDisplayName());
+
+        var info = GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer("^done,threads=[{id=\"3\",target-id=\"LWP 44\",details=\"worker\",state=\"stopped\"}]"));
+        registry.updateFromThreadInfo(info.getAttributes().getList("threads"));
+        assertEquals("LWP 44; worker: stopped", registry.get("3").getDisplayName());
+        assertEquals("i1", registry.get("3").groupId());
+
+        // Only thread 1 is left to ask about--and only once.
+        assertEquals(List.of("1"), registry.claimUnnamed());
+        assertEquals(List.of(), registry.claimUnnamed());
+        registry.unclaim("1");
+        assertEquals(List.of("1"), registry.claimUnnamed());
+
+        registry.update(GdbMiStateResponse.decode(Optional.empty(), new GdbMiLexer("=thread-group-exited,id=\"i1\",exit-code=\"0\"")));
+        assertEquals(0, registry.size());
+    }
+}
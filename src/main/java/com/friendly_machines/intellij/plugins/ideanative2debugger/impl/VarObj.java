@@ -0,0 +1,139 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A gdb variable object ("-var-create"): an expression that gdb keeps evaluating, so that after a step we only hear about what changed (see VarObjManager).
+ * The state is updated from "-var-create" and "-var-update" results.
+ */
+public final class VarObj {
+    public enum Scope {
+        IN_SCOPE,
+        /// The frame it was created in is gone (for now); the value is the last known one.
+        OUT_OF_SCOPE,
+        /// It can't be evaluated anymore at all (for example because the shared library it's in was unloaded).
+        INVALID
+    }
+
+    private final String myName;
+    private final String myExpression;
+    private volatile String myType;
+    private volatile String myValue;
+    private volatile int myChildCount;
+    private volatile boolean myHasMore;
+    private volatile boolean myDynamic;
+    @Nullable
+    private volatile String myDisplayHint;
+    private volatile Scope myScope = Scope.IN_SCOPE;
+    private volatile boolean myFrozen = false;
+    // Bookkeeping of VarObjManager, guarded by it:
+    // The last stop epoch in which it was shown
+    long myUsedStopEpoch;
+    // The number of children that gdb has created for it
+    int myChildrenInGdb = 0;
+    // The last stop epoch in which its children were shown
+    long myChildrenUsedStopEpoch;
+
+    /// @param attributes the result of "-var-create"
+    VarObj(@NotNull String expression, @NotNull GdbMiResults attributes) throws ClassCastException {
+        myName = attributes.getString("name", "");
+        myExpression = expression;
+        myType = attributes.getString("type", "");
+        myValue = attributes.getString("value", "");
+        myChildCount = Integer.parseInt(attributes.getString("numchild", "0"));
+        myHasMore = "1".equals(attributes.getString("has_more"));
+        myDynamic = "1".equals(attributes.getString("dynamic"));
+        myDisplayHint = attributes.getString("displayhint");
+    }
+
+    /// Applies one entry of the "changelist" of "-var-update".
+    void update(@NotNull GdbMiResults change) throws ClassCastException {
+        var value = change.getString("value");
+        if (value != null) {
+            myValue = value;
+        }
+        switch (change.getString("in_scope", "true")) {
+            case "false" -> myScope = Scope.OUT_OF_SCOPE;
+            case "invalid" -> myScope = Scope.INVALID;
+            default -> myScope = Scope.IN_SCOPE;
+        }
+        if ("true".equals(change.getString("type_changed"))) {
+            myType = change.getString("new_type", myType);
+        }
+        var childCount = change.getString("new_num_children");
+        if (childCount != null) {
+            myChildCount = Integer.parseInt(childCount);
+        }
+        var hasMore = change.getString("has_more");
+        if (hasMore != null) {
+            myHasMore = "1".equals(hasMore);
+        }
+        var dynamic = change.getString("dynamic");
+        if (dynamic != null) {
+            myDynamic = "1".equals(dynamic);
+        }
+        if (change.containsKey("displayhint")) {
+            myDisplayHint = change.getString("displayhint");
+        }
+    }
+
+    void setFrozen(boolean frozen) {
+        myFrozen = frozen;
+    }
+
+    /// gdb's name of the variable object, like "var1" (or "var1.field" for a child).
+    @NotNull
+    public String getName() {
+        return myName;
+    }
+
+    @NotNull
+    public String getExpression() {
+        return myExpression;
+    }
+
+    @NotNull
+    public String getType() {
+        return myType;
+    }
+
+    /// The value as gdb formats it--for aggregates just a summary like "{...}".
+    @NotNull
+    public String getValue() {
+        return myValue;
+    }
+
+    /// The number of children gdb knows about. For a dynamic varobj (pretty printer), that's only the ones that were listed so far.
+    public int getChildCount() {
+        return myChildCount;
+    }
+
+    /// Whether a dynamic varobj has (more) children than were listed so far.
+    public boolean hasMore() {
+        return myHasMore;
+    }
+
+    /// Whether the varobj is backed by a pretty printer.
+    public boolean isDynamic() {
+        return myDynamic;
+    }
+
+    /// The pretty printer's display hint ("array", "map", "string"), if any.
+    @Nullable
+    public String getDisplayHint() {
+        return myDisplayHint;
+    }
+
+    @NotNull
+    public Scope getScope() {
+        return myScope;
+    }
+
+    /// Whether gdb doesn't update the varobj (see "-var-set-frozen").
+    public boolean isFrozen() {
+        return myFrozen;
+    }
+}
@@ -0,0 +1,362 @@
+// Copyright 2022 Danny Milosavljevic. Use of this source code is governed by the Apache 2.0 license that can be found in the COPYING file.
+
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the locals and watches as gdb variable objects across steps.
+ * "-stack-list-variables --all-values" formats the whole value of every local on every stop--huge vectors and maps included.
+ * With variable objects, gdb evaluates each one once when it's created, and after that one "-var-update --all-values *" per stop reports only the ones that changed.
+ * A varobj is bound to the frame it was created in; once that frame is gone, gdb reports it as out of scope, and the next lookup creates a new one.
+ * <p>
+ * Every varobj in gdb costs time in each "-var-update", so the ones that aren't shown anymore are deleted: the UI asks for everything it shows again
+ * on each stop (getRoot, listChildren), so a root or a subtree that wasn't asked for in the previous stop nor in this one is not reachable from it.
+ * Beyond a maximum count, the least recently shown subtrees and roots are deleted too (but never the ones shown in this stop).
+ * The "-var-delete"s of a sweep are sent as one batch with the lowest priority once the "-var-update" that it belongs to is done, so they don't hold up anything that's shown.
+ */
+public class VarObjManager {
+    public interface Caller {
+        /// Sends OPERATION with OPTIONS to gdb, like DebugProcess.gdbCallAsync.
+        @NotNull
+        CompletableFuture<GdbMiTuple> call(@NotNull GdbMiPriority priority, @NotNull String operation, @NotNull List<String> options);
+
+        /// Sends all of COMMANDS with a single write, like GdbMiScheduler.submitBatch.
+        @NotNull
+        CompletableFuture<GdbMiTuple> batch(@NotNull GdbMiPriority priority, @NotNull List<GdbMiCommand> commands);
+    }
+
+    /// A page of the children of a varobj (see listChildren).
+    public record Children(@NotNull List<VarObj> children, boolean hasMore) {
+    }
+
+    /**
+     * Identifies the expression in a frame across steps.
+     * @param frameKey the function and the level of the frame: while the thread steps within a function, that stays the same
+     * @param watch whether it's a watch (see getWatch)
+     */
+    private record Key(@NotNull String threadId, @NotNull String frameKey, @NotNull String expression, boolean watch) {
+    }
+
+    private final Caller myCaller;
+    private final LongSupplier myStopEpoch;
+    private final int myMaxCount;
+    // Guarded by this. In access order, so the least recently used come first.
+    private final LinkedHashMap<Key, CompletableFuture<VarObj>> myRoots = new LinkedHashMap<>(16, 0.75f, true);
+    // All the varobjs there are in gdb that we know of (the roots, and the children that were listed), by name. Guarded by this.
+    private final HashMap<String, VarObj> myVarObjs = new HashMap<>();
+    // The varobjs whose children gdb has, by name. Guarded by this. In access order.
+    private final LinkedHashMap<String, VarObj> myExpanded = new LinkedHashMap<>(16, 0.75f, true);
+    // The number of varobjs in gdb. Guarded by this.
+    private int myCount = 0;
+    private long myUpdatedStopEpoch;
+    // Whether the values may have changed within this stop anyway (see invalidate). Guarded by this.
+    private boolean myStale = false;
+    private CompletableFuture<Void> myUpdate = CompletableFuture.completedFuture(null);
+
+    /**
+     * @param stopEpoch see GdbMiFilter.getStopEpoch
+     * @param maxCount the number of varobjs beyond which the least recently shown ones are deleted
+     */
+    public VarObjManager(@NotNull Caller caller, @NotNull LongSupplier stopEpoch, int maxCount) {
+        myCaller = caller;
+        myStopEpoch = stopEpoch;
+        myMaxCount = maxCount;
+        myUpdatedStopEpoch = stopEpoch.getAsLong();
+    }
+
+    /// The key of the frame LEVEL (with FRAME, a frame tuple as in "-stack-list-frames") for getRoot.
+    @NotNull
+    public static String frameKey(@NotNull String level, @NotNull GdbMiResults frame) throws ClassCastException {
+        return level + ":" + frame.getString("func", frame.getString("addr", "?"));
+    }
+
+    /**
+     * Brings all the varobjs up to date, once per stop epoch: "-var-update" only reports those that changed.
+     * After that, deletes the ones that weren't shown in the previous stop.
+     * @return done once the changes are applied
+     */
+    @NotNull
+    public CompletableFuture<Void> update() {
+        final List<List<String>> deletions;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        synchronized (this) {
+            long stopEpoch = myStopEpoch.getAsLong();
+            if (stopEpoch == myUpdatedStopEpoch && !myStale) {
+                return myUpdate;
+            }
+            deletions = stopEpoch == myUpdatedStopEpoch ? List.of() : sweepLocked(myUpdatedStopEpoch);
+            myUpdatedStopEpoch = stopEpoch;
+            myStale = false;
+            if (myVarObjs.isEmpty()) {
+                result.complete(null);
+            }
+            myUpdate = result;
+        }
+        // Without this locked: sending to gdb can block.
+        if (!result.isDone()) {
+            myCaller.call(GdbMiPriority.VISIBLE, "-var-update", List.of("--all-values", "*")).thenAccept(changes -> {
+                var changeList = changes.getList("changelist");
+                if (changeList != null) {
+                    applyChanges(changeList);
+                }
+            }).whenComplete((unused, throwable) -> {
+                // If that failed, the values are just not up to date.
+                if (throwable != null && !(DebugProcess.unwrap(throwable) instanceof CancellationException)) {
+                    throwable.printStackTrace();
+                }
+                result.complete(null);
+            });
+        }
+        if (!deletions.isEmpty()) {
+            result.thenRun(() -> delete(deletions));
+        }
+        return result;
+    }
+
+    /// Makes the next update run "-var-update" again even within the same stop--for example after evaluating an expression that may have had side effects.
+    public synchronized void invalidate() {
+        myStale = true;
+    }
+
+    /// Applies CHANGES (the "changelist" of "-var-update") to the varobjs.
+    synchronized void applyChanges(@NotNull GdbMiList changes) throws ClassCastException {
+        for (var item : changes) {
+            var change = (GdbMiTuple) item;
+            var varObj = myVarObjs.get(change.getString("name", ""));
+            if (varObj != null) {
+                varObj.update(change);
+            }
+        }
+    }
+
+    /**
+     * Returns the varobj for EXPRESSION in the frame LEVEL of the thread THREAD_ID (after bringing it up to date; see update).
+     * Reuses the one from previous stops while it's in scope; otherwise creates one.
+     * @param frameKey see frameKey
+     */
+    @NotNull
+    public CompletableFuture<VarObj> getRoot(@NotNull String threadId, @NotNull String frameKey, @NotNull String level, @NotNull String expression) {
+        return getRoot(new Key(threadId, frameKey, expression, false), level);
+    }
+
+    /**
+     * Like getRoot, but for a watch: that gets a varobj of its own even if it's just the name of a local,
+     * so that freezing it (or what's expanded of it) doesn't change the locals view.
+     */
+    @NotNull
+    public CompletableFuture<VarObj> getWatch(@NotNull String threadId, @NotNull String frameKey, @NotNull String level, @NotNull String expression) {
+        return getRoot(new Key(threadId, frameKey, expression, true), level);
+    }
+
+    @NotNull
+    private CompletableFuture<VarObj> getRoot(@NotNull Key key, @NotNull String level) {
+        final var threadId = key.threadId();
+        final var expression = key.expression();
+        return update().thenCompose(unused -> {
+            final CompletableFuture<VarObj> result = new CompletableFuture<>();
+            List<List<String>> outOfScope = List.of();
+            synchronized (this) {
+                var existing = myRoots.get(key);
+                var varObj = existing != null ? getNow(existing) : null;
+                if (existing != null && !existing.isCompletedExceptionally() && (varObj == null || varObj.getScope() == VarObj.Scope.IN_SCOPE)) { // still being created, or fine
+                    if (varObj != null) {
+                        varObj.myUsedStopEpoch = myUpdatedStopEpoch;
+                    }
+                    return existing;
+                }
+                if (varObj != null) { // a different call of the function, or gone entirely
+                    forgetLocked(varObj.getName(), false);
+                    outOfScope = List.of(List.of(varObj.getName()));
+                }
+                myRoots.put(key, result);
+            }
+            // Without this locked: sending to gdb can block.
+            delete(outOfScope);
+            myCaller.call(GdbMiPriority.VISIBLE, "-var-create", List.of("--thread", threadId, "--frame", level, "-", "*", expression)).thenApply(attributes -> {
+                var created = new VarObj(expression, attributes);
+                final List<List<String>> evictions;
+                synchronized (this) {
+                    created.myUsedStopEpoch = myUpdatedStopEpoch;
+                    myVarObjs.put(created.getName(), created);
+                    ++myCount;
+                    evictions = evictLocked();
+                }
+                delete(evictions);
+                return created;
+            }).whenComplete((varObj, throwable) -> {
+                if (throwable != null) {
+                    // Don't keep failures around: the expression may well be valid in the next stop.
+                    synchronized (this) {
+                        myRoots.remove(key, result);
+                    }
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(varObj);
+                }
+            });
+            return result;
+        });
+    }
+
+    /**
+     * Lists the children FROM (inclusive) to TO (exclusive) of PARENT--gdb only creates (and, for a pretty printer, only fetches) those.
+     * The children are varobjs too; they are brought up to date along with the others.
+     */
+    @NotNull
+    public CompletableFuture<Children> listChildren(@NotNull VarObj parent, int from, int to) {
+        return update().thenCompose(unused -> myCaller.call(GdbMiPriority.VISIBLE, "-var-list-children", List.of("--all-values", parent.getName(), Integer.toString(from), Integer.toString(to)))).thenApply(result -> {
+            var children = new ArrayList<VarObj>();
+            var items = result.getResultList("children");
+            if (items != null) {
+                for (int i = 0; i < items.size(); ++i) {
+                    if ("child".equals(items.getName(i))) {
+                        var attributes = items.getRow(i);
+                        children.add(new VarObj(attributes.getString("exp", ""), attributes));
+                    }
+                }
+            }
+            List<List<String>> evictions = List.of();
+            synchronized (this) {
+                if (myVarObjs.containsKey(parent.getName())) { // otherwise, it was deleted in the meantime (and the children with it)
+                    for (var child : children) {
+                        myVarObjs.put(child.getName(), child);
+                    }
+                    var expanded = myExpanded.get(parent.getName());
+                    if (expanded == null) {
+                        expanded = parent;
+                        myExpanded.put(parent.getName(), parent);
+                    }
+                    // Except for a pretty printer, gdb creates all the children at once, even though it only lists some.
+                    int childrenInGdb = parent.isDynamic() ? Math.max(expanded.myChildrenInGdb, from + children.size()) : parent.getChildCount();
+                    myCount += childrenInGdb - expanded.myChildrenInGdb;
+                    expanded.myChildrenInGdb = childrenInGdb;
+                    expanded.myChildrenUsedStopEpoch = myUpdatedStopEpoch;
+                    evictions = evictLocked();
+                }
+            }
+            delete(evictions);
+            return new Children(children, "1".equals(result.getString("has_more")));
+        });
+    }
+
+    /// Makes "-var-update" only report the children FROM (inclusive) to TO (exclusive) of the dynamic VAR_OBJ--the ones that are shown.
+    @NotNull
+    public CompletableFuture<GdbMiTuple> setUpdateRange(@NotNull VarObj varObj, int from, int to) {
+        return myCaller.call(GdbMiPriority.VISIBLE, "-var-set-update-range", List.of(varObj.getName(), Integer.toString(from), Integer.toString(to)));
+    }
+
+    /// Stops (or resumes) updating VAR_OBJ on each stop; it keeps its value.
+    @NotNull
+    public CompletableFuture<Void> setFrozen(@NotNull VarObj varObj, boolean frozen) {
+        return myCaller.call(GdbMiPriority.VISIBLE, "-var-set-frozen", List.of(varObj.getName(), frozen ? "1" : "0")).thenAccept(unused -> varObj.setFrozen(frozen));
+    }
+
+    @Nullable
+    private static VarObj getNow(@NotNull CompletableFuture<VarObj> varObj) {
+        return varObj.isDone() && !varObj.isCompletedExceptionally() ? varObj.join() : null;
+    }
+
+    // Forgets the varobj NAME (or, if CHILDREN_ONLY, only its children) along with everything below it, as "-var-delete" does in gdb.
+    // Note: Call with this locked.
+    private void forgetLocked(@NotNull String name, boolean childrenOnly) {
+        var childPrefix = name + ".";
+        for (var iterator = myExpanded.entrySet().iterator(); iterator.hasNext(); ) {
+            var entry = iterator.next();
+            if (entry.getKey().equals(name) || entry.getKey().startsWith(childPrefix)) {
+                myCount -= entry.getValue().myChildrenInGdb;
+                entry.getValue().myChildrenInGdb = 0;
+                iterator.remove();
+            }
+        }
+        myVarObjs.keySet().removeIf(item -> item.startsWith(childPrefix) || (!childrenOnly && item.equals(name)));
+        if (!childrenOnly) {
+            --myCount;
+        }
+    }
+
+    /**
+     * Forgets the roots, and the children, that were last shown before STOP_EPOCH.
+     * @return the options of the "-var-delete"s to send
+     */
+    // Note: Call with this locked.
+    @NotNull
+    private List<List<String>> sweepLocked(long stopEpoch) {
+        var deletions = new ArrayList<List<String>>();
+        for (var iterator = myRoots.values().iterator(); iterator.hasNext(); ) {
+            var root = getNow(iterator.next());
+            if (root != null && root.myUsedStopEpoch < stopEpoch) {
+                iterator.remove();
+                forgetLocked(root.getName(), false);
+                deletions.add(List.of(root.getName()));
+            }
+        }
+        for (var parent : new ArrayList<>(myExpanded.values())) {
+            if (parent.myChildrenUsedStopEpoch < stopEpoch && myExpanded.containsKey(parent.getName())) { // and not forgotten along with an ancestor
+                forgetLocked(parent.getName(), true);
+                deletions.add(List.of("-c", parent.getName()));
+            }
+        }
+        return deletions;
+    }
+
+    /**
+     * While there are more varobjs than the maximum, forgets the least recently shown subtrees (the children of a varobj), and then roots--but not the ones shown in this stop.
+     * @return the options of the "-var-delete"s to send
+     */
+    // Note: Call with this locked.
+    @NotNull
+    private List<List<String>> evictLocked() {
+        var deletions = new ArrayList<List<String>>();
+        // Eldest first
+        for (var parent : new ArrayList<>(myExpanded.values())) {
+            if (myCount <= myMaxCount) {
+                return deletions;
+            }
+            if (parent.myChildrenUsedStopEpoch < myUpdatedStopEpoch && myExpanded.containsKey(parent.getName())) {
+                forgetLocked(parent.getName(), true);
+                deletions.add(List.of("-c", parent.getName()));
+            }
+        }
+        for (var entry : new ArrayList<>(myRoots.entrySet())) {
+            if (myCount <= myMaxCount) {
+                return deletions;
+            }
+            var root = getNow(entry.getValue());
+            if (root != null && root.myUsedStopEpoch < myUpdatedStopEpoch) {
+                myRoots.remove(entry.getKey());
+                forgetLocked(root.getName(), false);
+                deletions.add(List.of(root.getName()));
+            }
+        }
+        return deletions;
+    }
+
+    // Sends the "-var-delete"s with the options DELETIONS, in one write.
+    // Nothing to do if that fails: then either gdb is gone, and the varobjs with it, or they are gone already.
+    // Note: Call without this locked--that would hold up the UI while writing to gdb.
+    private void delete(@NotNull List<List<String>> deletions) {
+        if (deletions.isEmpty()) {
+            return;
+        }
+        var commands = new ArrayList<GdbMiCommand>(deletions.size());
+        for (var options : deletions) {
+            commands.add(new GdbMiCommand("-var-delete", options));
+        }
+        myCaller.batch(GdbMiPriority.PREFETCH, commands);
+    }
+
+    /// The number of varobjs there are in gdb.
+    public synchronized int size() {
+        return myCount;
+    }
+}
@@ -0,0 +1,179 @@
+package com.friendly_machines.intellij.plugins.ideanative2debugger.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VarObjManagerTest {
+    /// Stands in for gdb: records each call (as "operation options...") and answers it.
+    private static class FakeCaller implements VarObjManager.Caller {
+        final List<String> calls = new ArrayList<>();
+        // The calls of each batch
+        final List<List<String>> batches = new ArrayList<>();
+        // Used in turn for the calls; after that, "^done".
+        final ArrayDeque<String> answers = new ArrayDeque<>();
+        private final BiFunction<String, List<String>, String> myAnswer;
+
+        FakeCaller() {
+            myAnswer = (operation, options) -> answers.isEmpty() ? "^done" : answers.poll();
+        }
+
+        /// ANSWER gives the response to an operation with options.
+        FakeCaller(@NotNull BiFunction<String, List<String>, String> answer) {
+            myAnswer = answer;
+        }
+
+        @Override
+        @NotNull
+        public CompletableFuture<GdbMiTuple> call(@NotNull GdbMiPriority priority, @NotNull String operation, @NotNull List<String> options) {
+            calls.add(operation + " " + String.join(" ", options));
+            return CompletableFuture.completedFuture(GdbMiStateResponse.decode(Optional.of("1"), new GdbMiLexer(myAnswer.apply(operation, options))).getAttributes());
+        }
+
+        @Override
+        @NotNull
+        public CompletableFuture<GdbMiTuple> batch(@NotNull GdbMiPriority priority, @NotNull List<GdbMiCommand> commands) {
+            assertEquals(GdbMiPriority.PREFETCH, priority); // only the "-var-delete"s, after everything that's shown
+            var batch = commands.stream().map(command -> command.operation() + " " + String.join(" ", command.options())).toList();
+            calls.addAll(batch);
+            batches.add(batch);
+            return CompletableFuture.completedFuture(GdbMiTuple.EMPTY);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void varObjManager() {
+        var caller = new FakeCaller();
+        var calls = caller.calls;
+        var stopEpoch = new AtomicLong(1);
+        var manager = new VarObjManager(caller, stopEpoch::get, 10000);
+        caller.answers.add("^done,name=\"var1\",numchild=\"0\",value=\"1\",type=\"int\",has_more=\"0\"");
+        var i = manager.getRoot("1", "0:main", "0", "i").join();
+        assertEquals(List.of("-var-create --thread 1 --frame 0 - * i"), calls);
+        assertEquals("var1", i.getName());
+        assertEquals("1", i.getValue());
+        assertSame(i, manager.getRoot("1", "0:main", "0", "i").join());
+        assertEquals(1, calls.size());
+
+        // Next stop: one update for all of them.
+        stopEpoch.set(2);
+        caller.answers.add("^done,changelist=[{name=\"var1\",value=\"2\",in_scope=\"true\",type_changed=\"false\",has_more=\"0\"}]");
+        assertSame(i, manager.getRoot("1", "0:main", "0", "i").join());
+        assertSame(i, manager.getRoot("1", "0:main", "0", "i").join());
+        assertEquals(List.of("-var-create --thread 1 --frame 0 - * i", "-var-update --all-values *"), calls);
+        assertEquals("2", i.getValue());
+
+        // Something changed the values within this stop (see Evaluator): update again, but don't delete anything.
+        manager.invalidate();
+        caller.answers.add("^done,changelist=[{name=\"var1\",value=\"3\",in_scope=\"true\",type_changed=\"false\",has_more=\"0\"}]");
+        assertSame(i, manager.getRoot("1", "0:main", "0", "i").join());
+        assertEquals(List.of("-var-update --all-values *"), calls.subList(2, calls.size()));
+        assertEquals("3", i.getValue());
+
+        // The function returned: make a new one.
+        stopEpoch.set(3);
+        caller.answers.add("^done,changelist=[{name=\"var1\",in_scope=\"false\",type_changed=\"false\",has_more=\"0\"}]");
+        caller.answers.add("^done,name=\"var2\",numchild=\"0\",value=\"7\",type=\"int\",has_more=\"0\"");
+        var i2 = manager.getRoot("1", "0:main", "0", "i").join();
+        assertEquals(VarObj.Scope.OUT_OF_SCOPE, i.getScope());
+        assertEquals("var2", i2.getName());
+        assertEquals(List.of("-var-update --all-values *", "-var-delete var1", "-var-create --thread 1 --frame 0 - * i"), calls.subList(3, calls.size()));
+        assertEquals(1, manager.size());
+
+        // A watch of the same expression gets a varobj of its own.
+        caller.answers.add("^done,name=\"var3\",numchild=\"0\",value=\"7\",type=\"int\",has_more=\"0\"");
+        var watch = manager.getWatch("1", "0:main", "0", "i").join();
+        assertEquals("var3", watch.getName());
+        assertSame(watch, manager.getWatch("1", "0:main", "0", "i").join());
+        assertSame(i2, manager.getRoot("1", "0:main", "0", "i").join());
+        assertEquals(2, manager.size());
+    }
+
+    @org.junit.jupiter.api.Test
+    void varObjChildren() {
+        var caller = new FakeCaller();
+        var calls = caller.calls;
+        var stopEpoch = new AtomicLong(1);
+        var manager = new VarObjManager(caller, stopEpoch::get, 10000);
+        caller.answers.add("^done,name=\"var1\",numchild=\"0\",value=\"Vec(size=1000000)\",type=\"alloc::vec::Vec<i32>\",dynamic=\"1\",displayhint=\"array\",has_more=\"1\"");
+        var v = manager.getRoot("1", "0:main", "0", "v").join();
+        assertTrue(v.isDynamic());
+        assertTrue(v.hasMore());
+        assertEquals("array", v.getDisplayHint());
+
+        caller.answers.add("^done,numchild=\"2\",displayhint=\"array\",children=[child={name=\"var1.[0]\",exp=\"[0]\",numchild=\"0\",value=\"5\",type=\"i32\"},child={name=\"var1.[1]\",exp=\"[1]\",numchild=\"0\",value=\"6\",type=\"i32\"}],has_more=\"1\"");
+        var children = manager.listChildren(v, 0, 2).join();
+        assertEquals("-var-list-children --all-values var1 0 2", calls.get(calls.size() - 1));
+        assertTrue(children.hasMore());
+        assertEquals(List.of("[0]", "[1]"), children.children().stream().map(VarObj::getExpression).toList());
+        assertEquals("6", children.children().get(1).getValue());
+        assertEquals(3, manager.size());
+        manager.setUpdateRange(v, 0, 2);
+        assertEquals("-var-set-update-range var1 0 2", calls.get(calls.size() - 1));
+
+        // The children are updated with the others.
+        stopEpoch.set(2);
+        caller.answers.add("^done,changelist=[{name=\"var1.[1]\",value=\"7\",in_scope=\"true\",type_changed=\"false\",has_more=\"0\"}]");
+        manager.update().join();
+        assertEquals("7", children.children().get(1).getValue());
+    }
+
+    @org.junit.jupiter.api.Test
+    void varObjLifecycle() {
+        var nextId = new AtomicInteger(1);
+        var caller = new FakeCaller((operation, options) -> switch (operation) {
+            case "-var-create" -> "^done,name=\"var" + nextId.getAndIncrement() + "\",numchild=\"2\",value=\"{...}\",type=\"struct s\",has_more=\"0\"";
+            case "-var-list-children" -> "^done,numchild=\"2\",children=[child={name=\"" + options.get(1) + ".a\",exp=\"a\",numchild=\"0\",value=\"1\",type=\"int\"},child={name=\"" + options.get(1) + ".b\",exp=\"b\",numchild=\"0\",value=\"2\",type=\"int\"}],has_more=\"0\"";
+            default -> "^done";
+        });
+        var calls = caller.calls;
+        var stopEpoch = new AtomicLong(1);
+        var manager = new VarObjManager(caller, stopEpoch::get, 5);
+        var s = manager.getRoot("1", "0:main", "0", "s").join();
+        var t = manager.getRoot("1", "0:main", "0", "t").join();
+        manager.listChildren(s, 0, 100).join();
+        manager.listChildren(t, 0, 100).join();
+        assertEquals(6, manager.size());
+        // Over the maximum, but everything is shown in this stop
+        assertFalse(calls.stream().anyMatch(call -> call.startsWith("-var-delete")));
+
+        // Next stop: "t" is collapsed. Still reachable, but the least recently shown subtree when over the maximum
+        stopEpoch.set(2);
+        manager.getRoot("1", "0:main", "0", "s").join();
+        manager.getRoot("1", "0:main", "0", "t").join();
+        manager.listChildren(s, 0, 100).join();
+        assertEquals("-var-delete -c var2", calls.get(calls.size() - 1));
+        assertEquals(4, manager.size());
+        var u = manager.getRoot("1", "0:main", "0", "u").join();
+        assertEquals("var3", u.getName());
+        assertEquals(5, manager.size());
+
+        // Two stops later, "t" and "u" were not shown in the previous stop nor in this one
+        stopEpoch.set(3);
+        manager.getRoot("1", "0:main", "0", "s").join();
+        manager.listChildren(s, 0, 100).join();
+        stopEpoch.set(4);
+        calls.clear();
+        caller.batches.clear();
+        manager.getRoot("1", "0:main", "0", "s").join();
+        assertEquals(List.of("-var-update --all-values *", "-var-delete var2", "-var-delete var3"), calls);
+        assertEquals(List.of(List.of("-var-delete var2", "-var-delete var3")), caller.batches); // in one write
+        assertEquals(3, manager.size());
+
+        // And then the children of "s" weren't shown in two stops either
+        stopEpoch.set(5);
+        calls.clear();
+        manager.getRoot("1", "0:main", "0", "s").join();
+        assertEquals(List.of("-var-update --all-values *", "-var-delete -c var1"), calls);
+        assertEquals(1, manager.size());
+    }
+}